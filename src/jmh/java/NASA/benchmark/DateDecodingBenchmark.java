@@ -0,0 +1,49 @@
+package NASA.benchmark;
+
+import NASA.utils.IsoDateDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Compares the SimpleDateFormat per timestamp path the parsers used before with IsoDateDecoder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DateDecodingBenchmark {
+    @Param({"2020-05-01T12:34:56Z", "1999-12-31T23:59:59Z"})
+    private String date;
+
+    private char[] dateChars;
+
+    @Setup
+    public void setUp() {
+        dateChars = date.toCharArray();
+    }
+
+    @Benchmark
+    public Date simpleDateFormat() throws ParseException {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'").parse(date);
+    }
+
+    @Benchmark
+    public long isoDateDecoder() throws ParseException {
+        return IsoDateDecoder.parse(date);
+    }
+
+    @Benchmark
+    public long isoDateDecoderFromChars() throws ParseException {
+        return IsoDateDecoder.parse(dateChars, 0, dateChars.length);
+    }
+}
@@ -0,0 +1,168 @@
+package NASA.benchmark;
+
+import NASA.model.Event;
+import NASA.utils.EventStreamParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/***
+ * EONET events responses used by the benchmarks. "small" is a hand-written response in the EONET v2.1 format,
+ * "typical" and "synthetic100k" are generated from a fixed seed with the category mix, geometry counts and field
+ * layout of the live feed, so every run measures the same bytes.
+ */
+public final class EonetFixtures {
+    public static final String SMALL = "small";
+    public static final String TYPICAL = "typical";
+    public static final String SYNTHETIC_100K = "synthetic100k";
+
+    private static final int TYPICAL_EVENTS = 350;
+    private static final int SYNTHETIC_EVENTS = 100_000;
+    private static final long SEED = 20200601L;
+
+    private static final int[] CATEGORY_IDS = {8, 10, 12, 15, 6, 14};
+    private static final String[] CATEGORY_TITLES =
+            {"Wildfires", "Severe Storms", "Volcanoes", "Sea and Lake Ice", "Drought", "Landslides"};
+    private static final int[] CATEGORY_WEIGHTS = {60, 15, 10, 10, 3, 2};
+    private static final String[] SOURCE_IDS = {"InciWeb", "NOAA_NHC", "SIVolcano", "NATICE", "EO", "PDC"};
+
+    private EonetFixtures() {
+    }
+
+    /***
+     *
+     * @param dataset one of {@link #SMALL}, {@link #TYPICAL} or {@link #SYNTHETIC_100K}
+     * @return the raw response bytes, UTF-8 encoded
+     */
+    public static byte[] load(String dataset) {
+        switch (dataset) {
+            case SMALL:
+                return readResource("/fixtures/eonet-events-small.json");
+            case TYPICAL:
+                return generate(TYPICAL_EVENTS, SEED);
+            case SYNTHETIC_100K:
+                return generate(SYNTHETIC_EVENTS, SEED);
+            default:
+                throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+    }
+
+    public static List<Event> loadEvents(String dataset) {
+        try {
+            return new EventStreamParser().getEventsFrom(new ByteArrayInputStream(load(dataset)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /***
+     * Generates an events response. Roughly a sixth of the events are closed, storms and icebergs carry a track
+     * of several points and a few wildfires are reported as polygons.
+     */
+    public static byte[] generate(int eventCount, long seed) {
+        Random random = new Random(seed);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long latest = 1591000000000L;
+
+        StringBuilder json = new StringBuilder(eventCount * 700);
+        json.append("{\"title\":\"EONET Events\",\"description\":\"Natural events from EONET.\",")
+                .append("\"link\":\"https://eonet.sci.gsfc.nasa.gov/api/v2.1/events\",\"events\":[");
+        for (int i = 0; i < eventCount; i++) {
+            int category = pickCategory(random);
+            String id = "EONET_" + (10000 + i);
+            long start = latest - (long) (random.nextDouble() * 365 * 24 * 3600 * 1000L);
+
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(id)
+                    .append("\",\"title\":\"").append(CATEGORY_TITLES[category]).append(" event ").append(i)
+                    .append("\",\"description\":\"\",\"link\":\"https://eonet.sci.gsfc.nasa.gov/api/v2.1/events/")
+                    .append(id).append('"');
+            if (random.nextInt(6) == 0) {
+                json.append(",\"closed\":\"").append(dateFormat.format(new Date(start + 14 * 24 * 3600 * 1000L)))
+                        .append('"');
+            }
+            json.append(",\"categories\":[{\"id\":").append(CATEGORY_IDS[category])
+                    .append(",\"title\":\"").append(CATEGORY_TITLES[category]).append("\"}]");
+            json.append(",\"sources\":[{\"id\":\"").append(SOURCE_IDS[category])
+                    .append("\",\"url\":\"https://example.org/").append(SOURCE_IDS[category].toLowerCase(Locale.ROOT))
+                    .append('/').append(i).append("\"}]");
+
+            json.append(",\"geometries\":[");
+            double longitude = random.nextDouble() * 360 - 180;
+            double latitude = random.nextDouble() * 140 - 70;
+            int points = category == 1 || category == 3 ? 3 + random.nextInt(30) : 1;
+            boolean polygon = category == 0 && random.nextInt(10) == 0;
+            for (int point = 0; point < points; point++) {
+                if (point > 0) {
+                    json.append(',');
+                }
+                json.append("{\"date\":\"").append(dateFormat.format(new Date(start + point * 6 * 3600 * 1000L)))
+                        .append("\",\"type\":\"").append(polygon ? "Polygon" : "Point").append("\",\"coordinates\":");
+                if (polygon) {
+                    double size = 0.5 + random.nextDouble() * 4;
+                    json.append("[[");
+                    appendPosition(json, longitude, latitude).append(',');
+                    appendPosition(json, longitude + size, latitude).append(',');
+                    appendPosition(json, longitude + size, latitude + size).append(',');
+                    appendPosition(json, longitude, latitude + size).append(',');
+                    appendPosition(json, longitude, latitude);
+                    json.append("]]");
+                } else {
+                    appendPosition(json, longitude, latitude);
+                }
+                json.append('}');
+                longitude = Math.max(-180, Math.min(180, longitude + random.nextDouble() - 0.5));
+                latitude = Math.max(-90, Math.min(90, latitude + random.nextDouble() - 0.3));
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int pickCategory(Random random) {
+        int value = random.nextInt(100);
+        for (int category = 0; category < CATEGORY_WEIGHTS.length; category++) {
+            value -= CATEGORY_WEIGHTS[category];
+            if (value < 0) {
+                return category;
+            }
+        }
+        return 0;
+    }
+
+    private static StringBuilder appendPosition(StringBuilder json, double longitude, double latitude) {
+        return json.append('[').append(Math.round(longitude * 100) / 100.0)
+                .append(',').append(Math.round(latitude * 100) / 100.0).append(']');
+    }
+
+    private static byte[] readResource(String name) {
+        try (InputStream inputStream = EonetFixtures.class.getResourceAsStream(name)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing fixture " + name);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
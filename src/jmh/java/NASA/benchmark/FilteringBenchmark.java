@@ -0,0 +1,90 @@
+package NASA.benchmark;
+
+import NASA.model.Event;
+import NASA.model.enums.ParserType;
+import NASA.service.APIConsumer;
+import NASA.service.EventSnapshotStore;
+import NASA.service.index.EventIntervalIndex;
+import NASA.service.query.EventQuery;
+import NASA.service.query.EventQueryPipeline;
+import NASA.service.store.CompactEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/***
+ * Measures the snapshot backed queries of {@link APIConsumer}: the affected places filter alone and combined
+ * with the prior days filter, run sequentially and in parallel, over plain or columnar events. The snapshot is
+ * published once, so no upstream call is made.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FilteringBenchmark {
+    @Param({EonetFixtures.TYPICAL, EonetFixtures.SYNTHETIC_100K})
+    private String dataset;
+
+    @Param({"0", "5"})
+    private long affectedPlacesNo;
+
+    @Param({"2147483647", "0"})
+    private int parallelThreshold;
+
+    @Param({"false", "true"})
+    private boolean columnar;
+
+    private APIConsumer apiConsumer;
+
+    @Setup
+    public void setUp() {
+        EventSnapshotStore snapshotStore = new EventSnapshotStore();
+        EventIntervalIndex intervalIndex = new EventIntervalIndex(snapshotStore);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EventQueryPipeline queryPipeline = new EventQueryPipeline(meterRegistry, parallelThreshold);
+        apiConsumer = new APIConsumer(new RestTemplate(), meterRegistry, snapshotStore, intervalIndex, queryPipeline,
+                ParserType.streaming, 1, 1, 1, columnar);
+
+        List<Event> events = EonetFixtures.loadEvents(dataset);
+        Map<Boolean, List<Event>> byClosed = events.stream()
+                .collect(Collectors.partitioningBy(event -> event.getClosed() != null));
+        snapshotStore.publish(getEvents(byClosed.get(false)), getEvents(byClosed.get(true)), Collections.emptyList());
+    }
+
+    private List<Event> getEvents(List<Event> events) {
+        return columnar ? CompactEvent.compact(events) : events;
+    }
+
+    @TearDown
+    public void tearDown() {
+        apiConsumer.shutdown();
+    }
+
+    @Benchmark
+    public List<Event> affectedPlaces() {
+        return apiConsumer.getEvents(EventQuery.builder()
+                .affectedPlacesNo(affectedPlacesNo)
+                .build());
+    }
+
+    @Benchmark
+    public List<Event> priorDaysAndAffectedPlaces() {
+        return apiConsumer.getEvents(EventQuery.builder()
+                .priorDays(30)
+                .affectedPlacesNo(affectedPlacesNo)
+                .build());
+    }
+}
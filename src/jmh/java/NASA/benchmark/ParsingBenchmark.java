@@ -0,0 +1,53 @@
+package NASA.benchmark;
+
+import NASA.model.Event;
+import NASA.utils.EventStreamParser;
+import NASA.utils.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Compares the tree parser, which reads the whole response as a String and a JsonNode first, with the streaming
+ * parser reading the events straight from the response bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+    @Param({EonetFixtures.SMALL, EonetFixtures.TYPICAL, EonetFixtures.SYNTHETIC_100K})
+    private String dataset;
+
+    private byte[] response;
+    private final JsonParser jsonParser = new JsonParser();
+    private final EventStreamParser eventStreamParser = new EventStreamParser();
+
+    @Setup
+    public void setUp() {
+        response = EonetFixtures.load(dataset);
+    }
+
+    @Benchmark
+    public List<Event> treeParser() throws JsonProcessingException, ParseException {
+        String json = new String(response, StandardCharsets.UTF_8);
+        return jsonParser.getEventsFromJsonNode(jsonParser.getJsonNodeFrom(json, "events"));
+    }
+
+    @Benchmark
+    public List<Event> streamingParser() throws IOException {
+        return eventStreamParser.getEventsFrom(new ByteArrayInputStream(response));
+    }
+}
@@ -0,0 +1,59 @@
+package NASA.benchmark;
+
+import NASA.model.Event;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Measures writing an events response body and its server-sent event frames, with an ObjectMapper configured
+ * the way Spring Boot configures the one used by the controllers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({EonetFixtures.SMALL, EonetFixtures.TYPICAL, EonetFixtures.SYNTHETIC_100K})
+    private String dataset;
+
+    private List<Event> events;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        events = EonetFixtures.loadEvents(dataset);
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] eventsResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(events);
+    }
+
+    /***
+     * Encodes every event as the data line of a server-sent event, as the event streams write them.
+     */
+    @Benchmark
+    public void sseFrames(Blackhole blackhole) throws JsonProcessingException {
+        for (Event event : events) {
+            String frame = "data:" + objectMapper.writeValueAsString(event) + "\n\n";
+            blackhole.consume(frame.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package NASA.benchmark;
+
+import NASA.model.Event;
+import NASA.service.EventStreamRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.Disposable;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Measures fanning the events of one shared stream out to its subscribers through the
+ * {@link EventStreamRegistry}, with a generator emitting without delay.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class StreamingBenchmark {
+    private static final int REPLAY_SIZE = 16;
+    private static final int BUFFER_SIZE = 256;
+
+    @Param({"1", "100"})
+    private int subscribers;
+
+    private List<Event> events;
+    private EventStreamRegistry registry;
+
+    @Setup
+    public void setUp() {
+        events = EonetFixtures.loadEvents(EonetFixtures.TYPICAL);
+        registry = new EventStreamRegistry(new SimpleMeterRegistry(), 0, REPLAY_SIZE, BUFFER_SIZE);
+    }
+
+    /***
+     * Subscribes every subscriber to the shared stream of one filter and waits until each got as many events as
+     * there are events. One more subscription holds the shared stream open meanwhile, so a subscriber done before
+     * the next one arrives does not tear it down; it is torn down when that subscription is disposed.
+     */
+    @Benchmark
+    public void sharedStreamFanOut(Blackhole blackhole) throws InterruptedException {
+        Disposable holder = registry.getStream("benchmark", () -> events).subscribe(blackhole::consume);
+        CountDownLatch done = new CountDownLatch(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            registry.getStream("benchmark", () -> events)
+                    .take(events.size())
+                    .doFinally(signal -> done.countDown())
+                    .subscribe(blackhole::consume);
+        }
+        done.await();
+        holder.dispose();
+    }
+}
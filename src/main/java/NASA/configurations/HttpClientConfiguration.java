@@ -0,0 +1,55 @@
+package NASA.configurations;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class HttpClientConfiguration {
+
+    /***
+     * Pooled keep-alive client used for all EONET calls. Unless compression is disabled, the client sends
+     * Accept-Encoding: gzip,deflate and transparently decompresses the responses.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient eonetHttpClient(@Value("${eonet.http.max-connections:20}") int maxConnections,
+                                               @Value("${eonet.http.max-connections-per-route:10}") int maxConnectionsPerRoute,
+                                               @Value("${eonet.http.connect-timeout-ms:5000}") int connectTimeout,
+                                               @Value("${eonet.http.connection-request-timeout-ms:5000}") int connectionRequestTimeout,
+                                               @Value("${eonet.http.read-timeout-ms:30000}") int readTimeout,
+                                               @Value("${eonet.http.idle-timeout-ms:30000}") long idleTimeout,
+                                               @Value("${eonet.http.compression:true}") boolean compression) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(readTimeout)
+                .setContentCompressionEnabled(compression)
+                .build();
+
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        if (!compression) {
+            builder.disableContentCompression();
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public RestTemplate eonetRestTemplate(CloseableHttpClient eonetHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(eonetHttpClient));
+    }
+}
@@ -0,0 +1,81 @@
+package NASA.configurations;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerTypePredicate;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.PathMatchConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Web configuration of the reactive profile, which serves the API with WebFlux on Netty instead of Spring MVC.
+ * The servlet context path does not apply to WebFlux, so it is added as a prefix of the controllers instead.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration implements WebFluxConfigurer {
+    private final String contextPath;
+
+    public ReactiveConfiguration(@Value("${server.servlet.context-path:}") String contextPath) {
+        this.contextPath = contextPath;
+    }
+
+    @Override
+    public void configurePathMatching(PathMatchConfigurer configurer) {
+        if (!contextPath.isEmpty()) {
+            configurer.addPathPrefix(contextPath, HandlerTypePredicate.forAnnotation(RestController.class));
+        }
+    }
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**");
+    }
+
+    /***
+     * Tomcat stays on the classpath for the servlet profile and would otherwise be preferred by Spring Boot.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /***
+     * Non-blocking client used for the EONET calls of the reactive profile, with the same pool size, timeouts
+     * and compression as the blocking client.
+     */
+    @Bean
+    public WebClient eonetWebClient(WebClient.Builder builder,
+                                    @Value("${eonet.http.max-connections:20}") int maxConnections,
+                                    @Value("${eonet.http.connect-timeout-ms:5000}") int connectTimeout,
+                                    @Value("${eonet.http.connection-request-timeout-ms:5000}") long connectionRequestTimeout,
+                                    @Value("${eonet.http.read-timeout-ms:30000}") int readTimeout,
+                                    @Value("${eonet.http.idle-timeout-ms:30000}") long idleTimeout,
+                                    @Value("${eonet.http.compression:true}") boolean compression) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("eonet")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(connectionRequestTimeout))
+                .maxIdleTime(Duration.ofMillis(idleTimeout))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .compress(compression)
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+                        .doOnConnected(connection -> connection
+                                .addHandlerLast(new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS))));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
@@ -1,10 +1,12 @@
 package NASA.configurations;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@Profile("!reactive")
 public class WebConfiguration implements WebMvcConfigurer {
 
     @Override
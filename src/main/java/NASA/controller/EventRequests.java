@@ -0,0 +1,252 @@
+package NASA.controller;
+
+import NASA.model.enums.EventStatus;
+import NASA.model.enums.GeometryType;
+import NASA.model.exceptions.EONETException;
+import NASA.service.EventSnapshot;
+import NASA.service.EventStatistics;
+import NASA.service.HeatmapTiles;
+import NASA.service.ResponseCache;
+import NASA.service.index.Geofence;
+import NASA.service.query.EventCursor;
+import NASA.service.query.EventQuery;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/***
+ * Request validation, query building and response headers shared by the servlet and the reactive controllers,
+ * so both serve the same API.
+ */
+final class EventRequests {
+    static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+    static final String SNAPSHOT_AGE_HEADER = "X-Snapshot-Age";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final Pattern SOURCE_PATTERN = Pattern.compile("[A-Za-z0-9_-]+(,[A-Za-z0-9_-]+)*");
+
+    private EventRequests() {
+    }
+
+    static EventQuery getQuery(EventStatus status, long priorDays, long affectedPlacesNo, GeometryType geometryType,
+                               String source, int limit) {
+        return EventQuery.builder()
+                .status(status)
+                .priorDays(priorDays)
+                .affectedPlacesNo(affectedPlacesNo)
+                .geometryType(geometryType)
+                .source(source == null ? null : String.join(",", new TreeSet<>(Arrays.asList(source.split(",")))))
+                .limit(limit)
+                .build();
+    }
+
+    /***
+     *
+     * @param categoryId the category of the events, or null for the events of all categories
+     * @throws EONETException if a parameter is invalid, with the reason as message
+     */
+    static EventQuery getEventsQuery(Integer categoryId, EventStatus status, long priorDays, long affectedPlacesNo,
+                                     LocalDate from, LocalDate to, GeometryType geometryType, int limit, String source,
+                                     String cursor) {
+        String queryError = getQueryError(limit, source);
+        if (queryError != null) {
+            throw new EONETException(queryError);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new EONETException("The start of the time window must not be after its end.");
+        }
+        return getQuery(status, priorDays, affectedPlacesNo, geometryType, source, limit).toBuilder()
+                .categoryId(categoryId)
+                .from(getStartMillis(from))
+                .to(getEndMillis(to))
+                .after(decodeCursor(cursor))
+                .build();
+    }
+
+    /***
+     *
+     * @return the decoded cursor, or null for the first page
+     * @throws EONETException if the cursor is not a valid cursor
+     */
+    static EventCursor decodeCursor(String cursor) {
+        return cursor == null ? null : EventCursor.decode(cursor);
+    }
+
+    /***
+     * The source ids are passed on to EONET, so they are restricted to the characters EONET uses in them.
+     *
+     * @return why the limit or the sources are invalid, or null if they are valid
+     */
+    static String getQueryError(int limit, String source) {
+        if (limit < 0) {
+            return "The limit must not be negative.";
+        }
+        if (source != null && !SOURCE_PATTERN.matcher(source).matches()) {
+            return "The source must be a comma separated list of source ids.";
+        }
+        return null;
+    }
+
+    /***
+     * Each circle and each polygon is its own request parameter, repeated for every region, as their values are
+     * comma separated themselves.
+     *
+     * @throws EONETException if a circle or a polygon is invalid
+     */
+    static List<Geofence> getGeofences(MultiValueMap<String, String> parameters) {
+        List<Geofence> geofences = new ArrayList<>();
+        for (String circle : parameters.getOrDefault("circle", Collections.emptyList())) {
+            geofences.add(Geofence.parseCircle(circle));
+        }
+        for (String polygon : parameters.getOrDefault("polygon", Collections.emptyList())) {
+            geofences.add(Geofence.parsePolygon(polygon));
+        }
+        return geofences;
+    }
+
+    /***
+     *
+     * @return the first millisecond of the given day in UTC, or the smallest time if there is no lower bound
+     */
+    static long getStartMillis(LocalDate from) {
+        return from == null ? Long.MIN_VALUE : from.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /***
+     *
+     * @return the last millisecond of the given day in UTC, or the greatest time if there is no upper bound
+     */
+    static long getEndMillis(LocalDate to) {
+        return to == null ? Long.MAX_VALUE : to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() - 1;
+    }
+
+    /***
+     * The events selected by the prior days change with the day, so the day is part of the key of such queries.
+     *
+     * @return the key of the query in the response cache
+     */
+    static String getCacheKey(EventQuery query) {
+        String key = "events/" + query.getKey();
+        if (query.getPriorDays() != 0) {
+            key += "/" + TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+        }
+        return key;
+    }
+
+    /***
+     * Writes the cached bytes as they are, gzipped if the client accepts it and the body was big enough to be
+     * kept gzipped. The strong ETag differs between the two encodings; a request whose If-None-Match holds the
+     * ETag of the representation it would get is answered 304 Not Modified by Spring, without a body.
+     */
+    static ResponseEntity<byte[]> getCachedResponse(ResponseCache.SerializedResponse response, EventSnapshot snapshot,
+                                                    String acceptEncoding) {
+        HttpHeaders headers = getPageHeaders(snapshot, response.getNextCursor());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (response.getGzippedBody() == null) {
+            headers.setETag("\"" + response.getDigest() + "\"");
+            return new ResponseEntity<>(response.getBody(), headers, HttpStatus.OK);
+        }
+
+        headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+        if (!acceptsGzip(acceptEncoding)) {
+            headers.setETag("\"" + response.getDigest() + "\"");
+            return new ResponseEntity<>(response.getBody(), headers, HttpStatus.OK);
+        }
+        headers.setETag("\"" + response.getDigest() + "-gzip\"");
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new ResponseEntity<>(response.getGzippedBody(), headers, HttpStatus.OK);
+    }
+
+    /***
+     *
+     * @return whether the Accept-Encoding header accepts gzip, explicitly or through *, with a non zero quality
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.trim().split(";");
+            String name = parameters[0].trim();
+            if (!"gzip".equalsIgnoreCase(name) && !"*".equals(name)) {
+                continue;
+            }
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /***
+     *
+     * @return the snapshot headers, with the cursor of the next page if there is one
+     */
+    static HttpHeaders getPageHeaders(EventSnapshot snapshot, String nextCursor) {
+        HttpHeaders headers = getSnapshotHeaders(snapshot);
+        if (nextCursor != null) {
+            headers.set(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return headers;
+    }
+
+    /***
+     *
+     * @return the version and the age in seconds of the snapshot the response is served from,
+     * or no headers if the response was fetched directly from EONET
+     */
+    static HttpHeaders getSnapshotHeaders(EventSnapshot snapshot) {
+        HttpHeaders headers = new HttpHeaders();
+        if (snapshot != null) {
+            headers.set(SNAPSHOT_VERSION_HEADER, String.valueOf(snapshot.getVersion()));
+            headers.set(SNAPSHOT_AGE_HEADER, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(snapshot.getAgeMillis())));
+        }
+        return headers;
+    }
+
+    /***
+     * Serves statistics kept up to date by {@link EventStatistics}, once the first snapshot is loaded.
+     */
+    static ResponseEntity<?> getStatisticsResponse(EventStatistics statistics, EventSnapshot snapshot, Supplier<Object> response) {
+        if (!statistics.isLoaded()) {
+            return new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        try {
+            return new ResponseEntity<>(response.get(), getSnapshotHeaders(snapshot), HttpStatus.OK);
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /***
+     * Serves a heatmap tile kept by {@link HeatmapTiles}, once the first snapshot is loaded.
+     */
+    static ResponseEntity<?> getTileResponse(HeatmapTiles heatmapTiles, EventSnapshot snapshot, int z, int x, int y,
+                                             Integer category, String acceptEncoding) {
+        if (!heatmapTiles.isLoaded()) {
+            return new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        try {
+            return getCachedResponse(heatmapTiles.getTile(z, x, y, category), snapshot, acceptEncoding);
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -2,67 +2,384 @@ package NASA.controller;
 
 import NASA.model.Event;
 import NASA.model.enums.EventStatus;
+import NASA.model.enums.GeometryType;
+import NASA.model.exceptions.EONETException;
 import NASA.service.APIConsumer;
-import NASA.service.EventsGenerator;
+import NASA.service.ClosedEventArchive;
+import NASA.service.EventChangeFeed;
+import NASA.service.EventSnapshot;
+import NASA.service.EventSnapshotStore;
+import NASA.service.EventStatistics;
+import NASA.service.EventStreamRegistry;
+import NASA.service.GeofenceFeed;
+import NASA.service.HeatmapTiles;
+import NASA.service.ResponseCache;
+import NASA.service.index.BoundingBox;
+import NASA.service.index.EventSpatialIndex;
+import NASA.service.query.EventPage;
+import NASA.service.query.EventQuery;
+import NASA.service.query.EventQueryPipeline;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import reactor.core.publisher.Flux;
 
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+import static NASA.controller.EventRequests.APPLICATION_NDJSON_VALUE;
+
+/***
+ * Servlet controller, used unless the reactive profile is active; see {@link ReactiveNasaEventsController}.
+ */
 @CrossOrigin
 @RestController
+@Profile("!reactive")
 public class NasaEventsController {
     private static final Logger LOG = LogManager.getLogger(NasaEventsController.class.getName());
 
     private final APIConsumer service;
+    private final EventSnapshotStore snapshotStore;
+    private final EventSpatialIndex spatialIndex;
+    private final EventStreamRegistry streamRegistry;
+    private final EventQueryPipeline queryPipeline;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final EventChangeFeed changeFeed;
+    private final ClosedEventArchive archive;
+    private final GeofenceFeed geofenceFeed;
+    private final EventStatistics statistics;
+    private final HeatmapTiles heatmapTiles;
 
-    public NasaEventsController(APIConsumer service) {
+    public NasaEventsController(APIConsumer service, EventSnapshotStore snapshotStore, EventSpatialIndex spatialIndex,
+                                EventStreamRegistry streamRegistry, EventQueryPipeline queryPipeline, ObjectMapper objectMapper,
+                                ResponseCache responseCache, EventChangeFeed changeFeed, ClosedEventArchive archive,
+                                GeofenceFeed geofenceFeed, EventStatistics statistics,
+                                HeatmapTiles heatmapTiles) {
         this.service = service;
+        this.snapshotStore = snapshotStore;
+        this.spatialIndex = spatialIndex;
+        this.streamRegistry = streamRegistry;
+        this.queryPipeline = queryPipeline;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.changeFeed = changeFeed;
+        this.archive = archive;
+        this.geofenceFeed = geofenceFeed;
+        this.statistics = statistics;
+        this.heatmapTiles = heatmapTiles;
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<?> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         LOG.info("User requests all categories.");
-        return new ResponseEntity<>(service.getAllCategories(), HttpStatus.OK);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            return getCachedResponse(snapshot, "categories", acceptEncoding,
+                    () -> responseCache.serialize(service.getAllCategories(), null));
+        }
+        return new ResponseEntity<>(service.getAllCategories(), getSnapshotHeaders(), HttpStatus.OK);
+    }
+
+    @GetMapping("/upstream/coalescing")
+    public ResponseEntity<?> getUpstreamCoalescingStatistics() {
+        return new ResponseEntity<>(service.getCoalescingStatistics(), HttpStatus.OK);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStatistics() {
+        LOG.info("User requests the event statistics.");
+        return EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), statistics::getSummary);
+    }
+
+    @GetMapping("/stats/categories")
+    public ResponseEntity<?> getCategoryStatistics() {
+        LOG.info("User requests the event statistics per category.");
+        return EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), statistics::getCategories);
+    }
+
+    @GetMapping("/stats/days")
+    public ResponseEntity<?> getDayStatistics(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LOG.info("User requests the event statistics per day from: " + from + " to: " + to);
+        return EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), () -> statistics.getDays(from, to));
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}")
+    public ResponseEntity<?> getHeatmapTile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                            @RequestParam(required = false) Integer category,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LOG.info("User requests the heatmap tile " + z + "/" + x + "/" + y + " of category: " + category);
+        return EventRequests.getTileResponse(heatmapTiles, snapshotStore.getSnapshot(), z, x, y, category, acceptEncoding);
     }
 
     @GetMapping("/events")
-    public ResponseEntity<?> getAllEvents(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo) {
-        LOG.info("User requests " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo);
-        return new ResponseEntity<>(service.getAllEvents(status, priorDays, affectedPlacesNo), HttpStatus.OK);
+    public ResponseEntity<?> getAllEvents(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) GeometryType geometryType,
+                                          @RequestParam(defaultValue = "0") int limit,
+                                          @RequestParam(required = false) String source,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        EventQuery query;
+        try {
+            query = getEventsQuery(status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        return getEventPageResponse(query, acceptEncoding);
+    }
+
+    /***
+     * Same as {@link #getAllEvents}, written as one JSON event per line while the events are serialized, so the
+     * response is never held in memory as a whole. Closed events within a time window are selected by
+     * the {@link ClosedEventArchive}, skipping the months that cannot match.
+     */
+    @GetMapping(value = "/events", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAllEventsAsNdjson(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                      @RequestParam(required = false) GeometryType geometryType,
+                                                                      @RequestParam(defaultValue = "0") int limit,
+                                                                      @RequestParam(required = false) String source,
+                                                                      @RequestParam(required = false) String cursor) {
+        EventQuery query;
+        try {
+            query = getEventsQuery(status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+        } catch (EONETException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (archive.canAnswer(query)) {
+            return getNdjsonResponse(archive.getEvents(query), getSnapshotHeaders());
+        }
+        EventPage page = service.getEventPage(query);
+        return getNdjsonResponse(page.getEvents(), getPageHeaders(page));
+    }
+
+    private EventQuery getEventsQuery(EventStatus status, long priorDays, long affectedPlacesNo, LocalDate from, LocalDate to,
+                                      GeometryType geometryType, int limit, String source, String cursor) {
+        LOG.info("User requests " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo
+                + ", from: " + from + " to: " + to + ", geometry type: " + geometryType + ", limit: " + limit + ", source: " + source
+                + ", cursor: " + cursor);
+        return EventRequests.getEventsQuery(null, status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+    }
+
+    @GetMapping("/events/within")
+    public ResponseEntity<?> getEventsWithin(@RequestParam String bbox,
+                                             @RequestParam(defaultValue = "all") EventStatus status,
+                                             @RequestParam(defaultValue = "0") long priorDays,
+                                             @RequestParam(defaultValue = "0") long affectedPlacesNo,
+                                             @RequestParam(required = false) GeometryType geometryType,
+                                             @RequestParam(defaultValue = "0") int limit,
+                                             @RequestParam(required = false) String source,
+                                             @RequestParam(required = false) String cursor) {
+        LOG.info("User requests " + status + " events within the bounding box " + bbox);
+        String queryError = EventRequests.getQueryError(limit, source);
+        if (queryError != null) {
+            return new ResponseEntity<>(queryError, HttpStatus.BAD_REQUEST);
+        }
+        if (!spatialIndex.isLoaded()) {
+            return new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        BoundingBox boundingBox;
+        EventQuery query;
+        try {
+            boundingBox = BoundingBox.parse(bbox);
+            query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, limit).toBuilder()
+                    .after(EventRequests.decodeCursor(cursor))
+                    .build();
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        EventPage page = queryPipeline.page(spatialIndex.getEventsWithin(boundingBox), query);
+        return new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK);
+    }
+
+    @GetMapping("/events/near")
+    public ResponseEntity<?> getEventsNear(@RequestParam double lat,
+                                           @RequestParam double lon,
+                                           @RequestParam double radiusKm,
+                                           @RequestParam(defaultValue = "all") EventStatus status,
+                                           @RequestParam(defaultValue = "0") long priorDays,
+                                           @RequestParam(defaultValue = "0") long affectedPlacesNo,
+                                           @RequestParam(required = false) GeometryType geometryType,
+                                           @RequestParam(defaultValue = "0") int limit,
+                                           @RequestParam(required = false) String source,
+                                           @RequestParam(required = false) String cursor) {
+        LOG.info("User requests " + status + " events within " + radiusKm + " km of " + lat + "," + lon);
+        String queryError = EventRequests.getQueryError(limit, source);
+        if (queryError != null) {
+            return new ResponseEntity<>(queryError, HttpStatus.BAD_REQUEST);
+        }
+        if (!spatialIndex.isLoaded()) {
+            return new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (!Double.isFinite(lat) || !Double.isFinite(lon) || !Double.isFinite(radiusKm)
+                || Math.abs(lat) > 90 || Math.abs(lon) > 180 || radiusKm < 0) {
+            return new ResponseEntity<>("Invalid center or radius.", HttpStatus.BAD_REQUEST);
+        }
+        EventQuery query;
+        try {
+            query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, limit).toBuilder()
+                    .after(EventRequests.decodeCursor(cursor))
+                    .build();
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        EventPage page = queryPipeline.page(spatialIndex.getEventsNear(lat, lon, radiusKm), query);
+        return new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK);
     }
 
     @GetMapping("/categories/{category-id}/events")
     public ResponseEntity<?> getAllEventsWithinCategory(@PathVariable("category-id") int categoryId,
                                                         @RequestParam EventStatus status,
                                                         @RequestParam long priorDays,
-                                                        @RequestParam long affectedPlacesNo) {
+                                                        @RequestParam long affectedPlacesNo,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                        @RequestParam(required = false) GeometryType geometryType,
+                                                        @RequestParam(defaultValue = "0") int limit,
+                                                        @RequestParam(required = false) String source,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         LOG.info("User requests all events within category with id " + categoryId + ", with number of affected places equals to: " + affectedPlacesNo
-                + ", with prior days: " + priorDays + " and status: " + status);
+                + ", with prior days: " + priorDays + " and status: " + status + ", from: " + from + " to: " + to
+                + ", geometry type: " + geometryType + ", limit: " + limit + ", source: " + source);
 
-        return new ResponseEntity<>(service.getAllEventsFromCategory(categoryId, status, priorDays, affectedPlacesNo), HttpStatus.OK);
+        EventQuery query;
+        try {
+            query = EventRequests.getEventsQuery(categoryId, status, priorDays, affectedPlacesNo, from, to, geometryType,
+                    limit, source, cursor);
+        } catch (EONETException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        return getEventPageResponse(query, acceptEncoding);
     }
 
     @GetMapping(value = "/stream/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<Event> getEventsStream(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo) {
-        LOG.info("User requests a flux with " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo);
-        EventsGenerator eventsGenerator = new EventsGenerator(service.getAllCategories(), service.getAllEvents(status, priorDays, affectedPlacesNo));
-        return eventsGenerator.getEvents();
+    public Flux<Event> getEventsStream(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                       @RequestParam(required = false) GeometryType geometryType,
+                                       @RequestParam(required = false) String source) {
+        LOG.info("User requests a flux with " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo
+                + ", geometry type: " + geometryType + ", source: " + source);
+        String queryError = EventRequests.getQueryError(0, source);
+        if (queryError != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, queryError);
+        }
+        EventQuery query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, 0);
+        return streamRegistry.getStream("events/" + query.getKey(), () -> service.getEvents(query));
     }
 
     @GetMapping(value = "/stream/categories/{category-id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Event> getEventsStream(@PathVariable("category-id") int categoryId,
                                        @RequestParam EventStatus status,
                                        @RequestParam long priorDays,
-                                       @RequestParam long affectedPlacesNo) {
+                                       @RequestParam long affectedPlacesNo,
+                                       @RequestParam(required = false) GeometryType geometryType,
+                                       @RequestParam(required = false) String source) {
         LOG.info("User requests a flux with all events within category with id " + categoryId
                 + ", with number of affected places equals to: " + affectedPlacesNo
-                + ", with prior days: " + priorDays + " and status: " + status);
+                + ", with prior days: " + priorDays + " and status: " + status + ", geometry type: " + geometryType
+                + ", source: " + source);
+        String queryError = EventRequests.getQueryError(0, source);
+        if (queryError != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, queryError);
+        }
+
+        EventQuery query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, 0).toBuilder()
+                .categoryId(categoryId)
+                .build();
+        return streamRegistry.getStream("events/" + query.getKey(), () -> service.getEvents(query));
+    }
+
+    /***
+     * Streams the changes of the events between snapshots, starting with a snapshot event, or with the changes
+     * missed since the Last-Event-ID of a reconnecting client.
+     */
+    @GetMapping(value = "/stream/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> getChangesStream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        LOG.info("User requests a flux with the event changes, resuming after: " + lastEventId);
+        return changeFeed.getChanges(lastEventId);
+    }
+
+    /***
+     * Streams the events entering the given regions: every circle parameter is a circle as
+     * latitude,longitude,radiusKm and every polygon parameter a polygon as longitude,latitude pairs.
+     */
+    @GetMapping(value = "/stream/geofences", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> getGeofenceStream(@RequestParam MultiValueMap<String, String> parameters) {
+        LOG.info("User requests a flux with the events entering the circles " + parameters.get("circle")
+                + " and the polygons " + parameters.get("polygon"));
+        try {
+            return geofenceFeed.getEvents(EventRequests.getGeofences(parameters));
+        } catch (EONETException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /***
+     * Serves the page from the response cache when it is read from the snapshot.
+     */
+    private ResponseEntity<?> getEventPageResponse(EventQuery query, String acceptEncoding) {
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot == null) {
+            EventPage page = service.getEventPage(query);
+            return new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK);
+        }
+        return getCachedResponse(snapshot, EventRequests.getCacheKey(query), acceptEncoding, () -> {
+            EventPage page = service.getEventPage(query);
+            return responseCache.serialize(page.getEvents(), page.getNextCursor());
+        });
+    }
+
+    private ResponseEntity<byte[]> getCachedResponse(EventSnapshot snapshot, String key, String acceptEncoding,
+                                                     Supplier<ResponseCache.SerializedResponse> loader) {
+        return EventRequests.getCachedResponse(responseCache.get(snapshot, key, loader), snapshot, acceptEncoding);
+    }
+
+    /***
+     * Writes the events one per line. Jackson's own buffer is flushed into the response as it fills up,
+     * so the response is sent in chunks while the remaining events are still being serialized.
+     */
+    private ResponseEntity<StreamingResponseBody> getNdjsonResponse(Iterable<Event> events, HttpHeaders headers) {
+        headers.setContentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+        ObjectWriter eventWriter = objectMapper.writerFor(Event.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                for (Event event : events) {
+                    eventWriter.writeValue(generator, event);
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private HttpHeaders getPageHeaders(EventPage page) {
+        return EventRequests.getPageHeaders(snapshotStore.getSnapshot(), page.getNextCursor());
+    }
 
-        EventsGenerator eventsGenerator = new EventsGenerator(service.getAllCategories(), service.getAllEventsFromCategory(categoryId, status, priorDays, affectedPlacesNo));
-        return eventsGenerator.getEvents();
+    private HttpHeaders getSnapshotHeaders() {
+        return EventRequests.getSnapshotHeaders(snapshotStore.getSnapshot());
     }
 }
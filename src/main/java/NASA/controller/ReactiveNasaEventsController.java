@@ -0,0 +1,379 @@
+package NASA.controller;
+
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.model.enums.GeometryType;
+import NASA.model.exceptions.EONETException;
+import NASA.service.APIConsumer;
+import NASA.service.ClosedEventArchive;
+import NASA.service.EventChangeFeed;
+import NASA.service.EventSnapshot;
+import NASA.service.EventSnapshotStore;
+import NASA.service.EventStatistics;
+import NASA.service.EventStreamRegistry;
+import NASA.service.GeofenceFeed;
+import NASA.service.HeatmapTiles;
+import NASA.service.ReactiveAPIConsumer;
+import NASA.service.ResponseCache;
+import NASA.service.index.BoundingBox;
+import NASA.service.index.EventSpatialIndex;
+import NASA.service.query.EventPage;
+import NASA.service.query.EventQuery;
+import NASA.service.query.EventQueryPipeline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+import static NASA.controller.EventRequests.APPLICATION_NDJSON_VALUE;
+
+/***
+ * WebFlux controller of the reactive profile, serving the same API as {@link NasaEventsController} on the event
+ * loop. Requests answered from the snapshot are computed in memory; the others wait for EONET through
+ * {@link ReactiveAPIConsumer} without holding a thread.
+ */
+@CrossOrigin
+@RestController
+@Profile("reactive")
+public class ReactiveNasaEventsController {
+    private static final Logger LOG = LogManager.getLogger(ReactiveNasaEventsController.class.getName());
+
+    private final ReactiveAPIConsumer service;
+    private final APIConsumer apiConsumer;
+    private final EventSnapshotStore snapshotStore;
+    private final EventSpatialIndex spatialIndex;
+    private final EventStreamRegistry streamRegistry;
+    private final EventQueryPipeline queryPipeline;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+    private final EventChangeFeed changeFeed;
+    private final ClosedEventArchive archive;
+    private final GeofenceFeed geofenceFeed;
+    private final EventStatistics statistics;
+    private final HeatmapTiles heatmapTiles;
+
+    public ReactiveNasaEventsController(ReactiveAPIConsumer service, APIConsumer apiConsumer, EventSnapshotStore snapshotStore,
+                                        EventSpatialIndex spatialIndex, EventStreamRegistry streamRegistry,
+                                        EventQueryPipeline queryPipeline, ObjectMapper objectMapper, ResponseCache responseCache,
+                                        EventChangeFeed changeFeed, ClosedEventArchive archive, GeofenceFeed geofenceFeed,
+                                        EventStatistics statistics, HeatmapTiles heatmapTiles) {
+        this.service = service;
+        this.apiConsumer = apiConsumer;
+        this.snapshotStore = snapshotStore;
+        this.spatialIndex = spatialIndex;
+        this.streamRegistry = streamRegistry;
+        this.queryPipeline = queryPipeline;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.changeFeed = changeFeed;
+        this.archive = archive;
+        this.geofenceFeed = geofenceFeed;
+        this.statistics = statistics;
+        this.heatmapTiles = heatmapTiles;
+    }
+
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<?>> getAllCategories(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LOG.info("User requests all categories.");
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            return Mono.fromSupplier(() -> EventRequests.getCachedResponse(responseCache.get(snapshot, "categories",
+                    () -> responseCache.serialize(snapshot.getCategories(), null)), snapshot, acceptEncoding));
+        }
+        return service.getAllCategories().map(categories -> new ResponseEntity<>(categories, HttpStatus.OK));
+    }
+
+    @GetMapping("/upstream/coalescing")
+    public Mono<ResponseEntity<?>> getUpstreamCoalescingStatistics() {
+        return Mono.just(new ResponseEntity<>(apiConsumer.getCoalescingStatistics(), HttpStatus.OK));
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<?>> getStatistics() {
+        LOG.info("User requests the event statistics.");
+        return Mono.fromSupplier(() -> EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), statistics::getSummary));
+    }
+
+    @GetMapping("/stats/categories")
+    public Mono<ResponseEntity<?>> getCategoryStatistics() {
+        LOG.info("User requests the event statistics per category.");
+        return Mono.fromSupplier(() -> EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), statistics::getCategories));
+    }
+
+    @GetMapping("/stats/days")
+    public Mono<ResponseEntity<?>> getDayStatistics(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LOG.info("User requests the event statistics per day from: " + from + " to: " + to);
+        return Mono.fromSupplier(() -> EventRequests.getStatisticsResponse(statistics, snapshotStore.getSnapshot(), () -> statistics.getDays(from, to)));
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}")
+    public Mono<ResponseEntity<?>> getHeatmapTile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                                  @RequestParam(required = false) Integer category,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LOG.info("User requests the heatmap tile " + z + "/" + x + "/" + y + " of category: " + category);
+        return Mono.fromSupplier(() -> EventRequests.getTileResponse(heatmapTiles, snapshotStore.getSnapshot(),
+                z, x, y, category, acceptEncoding));
+    }
+
+    @GetMapping("/events")
+    public Mono<ResponseEntity<?>> getAllEvents(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @RequestParam(required = false) GeometryType geometryType,
+                                                @RequestParam(defaultValue = "0") int limit,
+                                                @RequestParam(required = false) String source,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        EventQuery query;
+        try {
+            query = getEventsQuery(status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+        } catch (EONETException e) {
+            return Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+        }
+        return getEventPageResponse(query, acceptEncoding);
+    }
+
+    /***
+     * Same as {@link #getAllEvents}, with every event serialized into its own line only when the client is ready
+     * for it. Closed events within a time window are selected by the {@link ClosedEventArchive}, skipping the
+     * months that cannot match, off the event loop.
+     */
+    @GetMapping(value = "/events", produces = APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> getAllEventsAsNdjson(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                   @RequestParam(required = false) GeometryType geometryType,
+                                                                   @RequestParam(defaultValue = "0") int limit,
+                                                                   @RequestParam(required = false) String source,
+                                                                   @RequestParam(required = false) String cursor) {
+        EventQuery query;
+        try {
+            query = getEventsQuery(status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+        } catch (EONETException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+        if (archive.canAnswer(query)) {
+            HttpHeaders headers = EventRequests.getSnapshotHeaders(snapshotStore.getSnapshot());
+            headers.setContentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+            Flux<String> lines = Flux.fromIterable(archive.getEvents(query))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(this::toJsonLine);
+            return Mono.just(new ResponseEntity<>(lines, headers, HttpStatus.OK));
+        }
+        return service.getEventPage(query).map(page -> {
+            HttpHeaders headers = getPageHeaders(page);
+            headers.setContentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE));
+            return new ResponseEntity<>(Flux.fromIterable(page.getEvents()).map(this::toJsonLine), headers, HttpStatus.OK);
+        });
+    }
+
+    private EventQuery getEventsQuery(EventStatus status, long priorDays, long affectedPlacesNo, LocalDate from, LocalDate to,
+                                      GeometryType geometryType, int limit, String source, String cursor) {
+        LOG.info("User requests " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo
+                + ", from: " + from + " to: " + to + ", geometry type: " + geometryType + ", limit: " + limit + ", source: " + source
+                + ", cursor: " + cursor);
+        return EventRequests.getEventsQuery(null, status, priorDays, affectedPlacesNo, from, to, geometryType, limit, source, cursor);
+    }
+
+    @GetMapping("/events/within")
+    public Mono<ResponseEntity<?>> getEventsWithin(@RequestParam String bbox,
+                                                   @RequestParam(defaultValue = "all") EventStatus status,
+                                                   @RequestParam(defaultValue = "0") long priorDays,
+                                                   @RequestParam(defaultValue = "0") long affectedPlacesNo,
+                                                   @RequestParam(required = false) GeometryType geometryType,
+                                                   @RequestParam(defaultValue = "0") int limit,
+                                                   @RequestParam(required = false) String source,
+                                                   @RequestParam(required = false) String cursor) {
+        LOG.info("User requests " + status + " events within the bounding box " + bbox);
+        String queryError = EventRequests.getQueryError(limit, source);
+        if (queryError != null) {
+            return Mono.just(new ResponseEntity<>(queryError, HttpStatus.BAD_REQUEST));
+        }
+        if (!spatialIndex.isLoaded()) {
+            return Mono.just(new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        BoundingBox boundingBox;
+        EventQuery query;
+        try {
+            boundingBox = BoundingBox.parse(bbox);
+            query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, limit).toBuilder()
+                    .after(EventRequests.decodeCursor(cursor))
+                    .build();
+        } catch (EONETException e) {
+            return Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+        }
+        return Mono.fromSupplier(() -> {
+            EventPage page = queryPipeline.page(spatialIndex.getEventsWithin(boundingBox), query);
+            return new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK);
+        });
+    }
+
+    @GetMapping("/events/near")
+    public Mono<ResponseEntity<?>> getEventsNear(@RequestParam double lat,
+                                                 @RequestParam double lon,
+                                                 @RequestParam double radiusKm,
+                                                 @RequestParam(defaultValue = "all") EventStatus status,
+                                                 @RequestParam(defaultValue = "0") long priorDays,
+                                                 @RequestParam(defaultValue = "0") long affectedPlacesNo,
+                                                 @RequestParam(required = false) GeometryType geometryType,
+                                                 @RequestParam(defaultValue = "0") int limit,
+                                                 @RequestParam(required = false) String source,
+                                                 @RequestParam(required = false) String cursor) {
+        LOG.info("User requests " + status + " events within " + radiusKm + " km of " + lat + "," + lon);
+        String queryError = EventRequests.getQueryError(limit, source);
+        if (queryError != null) {
+            return Mono.just(new ResponseEntity<>(queryError, HttpStatus.BAD_REQUEST));
+        }
+        if (!spatialIndex.isLoaded()) {
+            return Mono.just(new ResponseEntity<>("The events are not loaded yet.", HttpStatus.SERVICE_UNAVAILABLE));
+        }
+        if (!Double.isFinite(lat) || !Double.isFinite(lon) || !Double.isFinite(radiusKm)
+                || Math.abs(lat) > 90 || Math.abs(lon) > 180 || radiusKm < 0) {
+            return Mono.just(new ResponseEntity<>("Invalid center or radius.", HttpStatus.BAD_REQUEST));
+        }
+        EventQuery query;
+        try {
+            query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, limit).toBuilder()
+                    .after(EventRequests.decodeCursor(cursor))
+                    .build();
+        } catch (EONETException e) {
+            return Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+        }
+        return Mono.fromSupplier(() -> {
+            EventPage page = queryPipeline.page(spatialIndex.getEventsNear(lat, lon, radiusKm), query);
+            return new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK);
+        });
+    }
+
+    @GetMapping("/categories/{category-id}/events")
+    public Mono<ResponseEntity<?>> getAllEventsWithinCategory(@PathVariable("category-id") int categoryId,
+                                                              @RequestParam EventStatus status,
+                                                              @RequestParam long priorDays,
+                                                              @RequestParam long affectedPlacesNo,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                              @RequestParam(required = false) GeometryType geometryType,
+                                                              @RequestParam(defaultValue = "0") int limit,
+                                                              @RequestParam(required = false) String source,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        LOG.info("User requests all events within category with id " + categoryId + ", with number of affected places equals to: " + affectedPlacesNo
+                + ", with prior days: " + priorDays + " and status: " + status + ", from: " + from + " to: " + to
+                + ", geometry type: " + geometryType + ", limit: " + limit + ", source: " + source);
+
+        EventQuery query;
+        try {
+            query = EventRequests.getEventsQuery(categoryId, status, priorDays, affectedPlacesNo, from, to, geometryType,
+                    limit, source, cursor);
+        } catch (EONETException e) {
+            return Mono.just(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+        }
+        return getEventPageResponse(query, acceptEncoding);
+    }
+
+    @GetMapping(value = "/stream/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<Event> getEventsStream(@RequestParam EventStatus status, @RequestParam long priorDays, @RequestParam long affectedPlacesNo,
+                                       @RequestParam(required = false) GeometryType geometryType,
+                                       @RequestParam(required = false) String source) {
+        LOG.info("User requests a flux with " + status + " events within " + priorDays + " days and with number of affected places equals to: " + affectedPlacesNo
+                + ", geometry type: " + geometryType + ", source: " + source);
+        String queryError = EventRequests.getQueryError(0, source);
+        if (queryError != null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, queryError));
+        }
+        EventQuery query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, 0);
+        return streamRegistry.getStream("events/" + query.getKey(), () -> apiConsumer.getEvents(query));
+    }
+
+    @GetMapping(value = "/stream/categories/{category-id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<Event> getEventsStream(@PathVariable("category-id") int categoryId,
+                                       @RequestParam EventStatus status,
+                                       @RequestParam long priorDays,
+                                       @RequestParam long affectedPlacesNo,
+                                       @RequestParam(required = false) GeometryType geometryType,
+                                       @RequestParam(required = false) String source) {
+        LOG.info("User requests a flux with all events within category with id " + categoryId
+                + ", with number of affected places equals to: " + affectedPlacesNo
+                + ", with prior days: " + priorDays + " and status: " + status + ", geometry type: " + geometryType
+                + ", source: " + source);
+        String queryError = EventRequests.getQueryError(0, source);
+        if (queryError != null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, queryError));
+        }
+
+        EventQuery query = EventRequests.getQuery(status, priorDays, affectedPlacesNo, geometryType, source, 0).toBuilder()
+                .categoryId(categoryId)
+                .build();
+        return streamRegistry.getStream("events/" + query.getKey(), () -> apiConsumer.getEvents(query));
+    }
+
+    /***
+     * Streams the changes of the events between snapshots, starting with a snapshot event, or with the changes
+     * missed since the Last-Event-ID of a reconnecting client.
+     */
+    @GetMapping(value = "/stream/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> getChangesStream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        LOG.info("User requests a flux with the event changes, resuming after: " + lastEventId);
+        return changeFeed.getChanges(lastEventId);
+    }
+
+    /***
+     * Streams the events entering the given regions: every circle parameter is a circle as
+     * latitude,longitude,radiusKm and every polygon parameter a polygon as longitude,latitude pairs.
+     */
+    @GetMapping(value = "/stream/geofences", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> getGeofenceStream(@RequestParam MultiValueMap<String, String> parameters) {
+        LOG.info("User requests a flux with the events entering the circles " + parameters.get("circle")
+                + " and the polygons " + parameters.get("polygon"));
+        try {
+            return geofenceFeed.getEvents(EventRequests.getGeofences(parameters));
+        } catch (EONETException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    /***
+     * Serves the page from the response cache when it is read from the snapshot, otherwise waits for EONET.
+     */
+    private Mono<ResponseEntity<?>> getEventPageResponse(EventQuery query, String acceptEncoding) {
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot == null) {
+            return service.getEventPage(query)
+                    .map(page -> new ResponseEntity<>(page.getEvents(), getPageHeaders(page), HttpStatus.OK));
+        }
+        return Mono.fromSupplier(() -> EventRequests.getCachedResponse(responseCache.get(snapshot, EventRequests.getCacheKey(query), () -> {
+            EventPage page = apiConsumer.getEventPage(query);
+            return responseCache.serialize(page.getEvents(), page.getNextCursor());
+        }), snapshot, acceptEncoding));
+    }
+
+    private String toJsonLine(Event event) {
+        try {
+            return objectMapper.writeValueAsString(event) + "\n";
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpHeaders getPageHeaders(EventPage page) {
+        return EventRequests.getPageHeaders(snapshotStore.getSnapshot(), page.getNextCursor());
+    }
+}
@@ -1,12 +1,14 @@
 package NASA.model;
 
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
 import java.io.Serializable;
 
 @Getter
 @AllArgsConstructor
+@EqualsAndHashCode
 public class Coordinates implements Serializable {
     private double latitude;
     private double longitude;
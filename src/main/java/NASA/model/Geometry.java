@@ -1,7 +1,10 @@
 package NASA.model;
 
 import NASA.model.enums.GeometryType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,19 +12,45 @@ import lombok.NoArgsConstructor;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"id", "date", "type", "coordinates", "polygon"})
 public class Geometry implements Serializable {
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
     private int id;
-    private Date date;
+    /***
+     * The date of the geometry in milliseconds since the epoch, or NO_TIMESTAMP if the geometry has no date.
+     * It is exposed as a Date through getDate/setDate.
+     */
+    @JsonIgnore
+    private long timestamp = NO_TIMESTAMP;
     private GeometryType type;
     private Coordinates coordinates;
+    /***
+     * The outer ring of a Polygon geometry, in the same order as the coordinates of a Point.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Coordinates> polygon;
+
+    public boolean hasTimestamp() {
+        return timestamp != NO_TIMESTAMP;
+    }
+
+    public Date getDate() {
+        return hasTimestamp() ? new Date(timestamp) : null;
+    }
+
+    public void setDate(Date date) {
+        this.timestamp = date == null ? NO_TIMESTAMP : date.getTime();
+    }
 
     public String showDate() {
         SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
-        return formatter.format(date);
+        return formatter.format(getDate());
     }
 }
@@ -0,0 +1,8 @@
+package NASA.model.enums;
+
+public enum EventChangeType {
+    added,
+    updated,
+    closed,
+    removed
+}
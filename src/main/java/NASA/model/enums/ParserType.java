@@ -0,0 +1,6 @@
+package NASA.model.enums;
+
+public enum ParserType {
+    tree,
+    streaming
+}
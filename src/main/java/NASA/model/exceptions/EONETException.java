@@ -8,5 +8,6 @@ public class EONETException extends RuntimeException {
 
     public EONETException(String message) {
         super(message);
+        this.message = message;
     }
 }
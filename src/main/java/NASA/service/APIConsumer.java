@@ -2,24 +2,54 @@ package NASA.service;
 
 import NASA.model.Category;
 import NASA.model.Event;
-import NASA.model.Geometry;
-import NASA.model.Source;
 import NASA.model.enums.EventStatus;
+import NASA.model.enums.ParserType;
 import NASA.model.enums.QueryParameterType;
+import NASA.model.exceptions.EONETException;
+import NASA.service.index.EventIntervalIndex;
+import NASA.service.query.EventPage;
+import NASA.service.query.EventQuery;
+import NASA.service.query.EventQueryPipeline;
+import NASA.service.query.EventQueryPlanner;
+import NASA.service.store.CompactEvent;
+import NASA.utils.EventStreamParser;
 import NASA.utils.JsonParser;
-import NASA.utils.URLManipulator;
+import NASA.utils.ModelInterner;
+import NASA.utils.SingleFlight;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /***
  * This API consumer was implemented by this documentation https://eonet.sci.gsfc.nasa.gov/docs/v2.1
@@ -30,106 +60,242 @@ public class APIConsumer {
     private static final Logger LOG = LogManager.getLogger(APIConsumer.class.getName());
 
     private static final String SLASH = "/";
-    private static final String EVENTS = "events";
-    private static final String CATEGORIES = "categories";
-    private static final String ID = "id";
-    private static final String TITLE = "title";
-    private static final String DESCRIPTION = "description";
-    private static final String LINK = "link";
-    private static final String SOURCES = "sources";
-    private static final String GEOMETRIES = "geometries";
-    private static final String CLOSED = "closed";
+    static final String EVENTS = "events";
+    static final String CATEGORIES = "categories";
 
     private static final String URL_BASE = "https://eonet.sci.gsfc.nasa.gov/api/v2.1";
-    private static final String URL_BASE_EVENTS = URL_BASE + SLASH + EVENTS;
-    private static final String URL_BASE_CATEGORIES = URL_BASE + SLASH + CATEGORIES;
-
-    private final RestTemplate restTemplate;
-    private final JsonParser jsonParser = new JsonParser();
+    static final String URL_BASE_EVENTS = URL_BASE + SLASH + EVENTS;
+    static final String URL_BASE_CATEGORIES = URL_BASE + SLASH + CATEGORIES;
+
+    private final ConditionalFetcher conditionalFetcher;
+    private final ModelInterner modelInterner = new ModelInterner();
+    private final JsonParser jsonParser = new JsonParser(modelInterner);
+    private final EventStreamParser eventStreamParser = new EventStreamParser(modelInterner);
+    private final SingleFlight<String, List<Event>> eventFetches = new SingleFlight<>();
+    private final SingleFlight<String, List<Category>> categoryFetches = new SingleFlight<>();
+    private final ParserType parserType;
+    private final boolean columnarStore;
+    private final EventSnapshotStore snapshotStore;
+    private final EventIntervalIndex intervalIndex;
+    private final EventQueryPipeline queryPipeline;
+    private final EventQueryPlanner queryPlanner = new EventQueryPlanner(URL_BASE_EVENTS, URL_BASE_CATEGORIES);
+    private final ExecutorService upstreamExecutor;
+
+    private final Timer parseTimer;
+    private final DistributionSummary parsedEvents;
+    private final DistributionSummary parsedGeometries;
+
+    public APIConsumer(RestTemplate restTemplate,
+                       MeterRegistry meterRegistry,
+                       EventSnapshotStore snapshotStore,
+                       EventIntervalIndex intervalIndex,
+                       EventQueryPipeline queryPipeline,
+                       @Value("${eonet.parser:streaming}") ParserType parserType,
+                       @Value("${eonet.upstream.threads:4}") int upstreamThreads,
+                       @Value("${eonet.upstream.queue-capacity:64}") int upstreamQueueCapacity,
+                       @Value("${eonet.http.revalidation-cache-size:64}") int revalidationCacheSize,
+                       @Value("${eonet.store.columnar:true}") boolean columnarStore) {
+        this.conditionalFetcher = new ConditionalFetcher(restTemplate, meterRegistry, revalidationCacheSize);
+        this.parserType = parserType;
+        this.columnarStore = columnarStore;
+        this.snapshotStore = snapshotStore;
+        this.intervalIndex = intervalIndex;
+        this.queryPipeline = queryPipeline;
+        this.upstreamExecutor = createUpstreamExecutor(upstreamThreads, upstreamQueueCapacity);
+
+        this.parseTimer = Timer.builder("eonet.parse")
+                .description("Parsing of EONET events responses; with the streaming parser this includes reading the body")
+                .tag("parser", parserType.name())
+                .register(meterRegistry);
+        this.parsedEvents = DistributionSummary.builder("eonet.parse.events")
+                .description("Events per parsed EONET response")
+                .tag("parser", parserType.name())
+                .register(meterRegistry);
+        this.parsedGeometries = DistributionSummary.builder("eonet.parse.geometries")
+                .description("Geometries per parsed EONET response")
+                .tag("parser", parserType.name())
+                .register(meterRegistry);
+
+        bindFetchMetrics(meterRegistry, EVENTS, eventFetches);
+        bindFetchMetrics(meterRegistry, CATEGORIES, categoryFetches);
+        new ExecutorServiceMetrics(upstreamExecutor, "eonet-upstream", Tags.empty()).bindTo(meterRegistry);
+    }
 
-    public APIConsumer() {
-        this.restTemplate = new RestTemplate();
+    private static void bindFetchMetrics(MeterRegistry meterRegistry, String resource, SingleFlight<?, ?> fetches) {
+        FunctionCounter.builder("eonet.upstream.fetches", fetches, SingleFlight::getExecutedCalls)
+                .description("Upstream fetches, either executed or served by an identical fetch already in flight")
+                .tags("resource", resource, "result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("eonet.upstream.fetches", fetches, SingleFlight::getCoalescedCalls)
+                .description("Upstream fetches, either executed or served by an identical fetch already in flight")
+                .tags("resource", resource, "result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("eonet.upstream.fetches.in.flight", fetches, SingleFlight::getInFlightCalls)
+                .description("Upstream fetches running right now")
+                .tag("resource", resource)
+                .register(meterRegistry);
     }
 
     /***
-     *
-     * @param status the status of the event: open, closed, all
-     * @return the list with open/closed/all events
+     * Bounded pool used to fetch and parse EONET responses concurrently. When both the threads and the
+     * queue are busy, the calling thread runs the fetch itself instead of queueing without limit.
      */
-    public List<Event> getAllEvents(EventStatus status, long affectedPlacesNo) {
-        List<Event> events = new ArrayList<>();
-
-        if (EventStatus.all.equals(status)) {
-            events.addAll(getAllEventsWithStatus(EventStatus.open));
-            events.addAll(getAllEventsWithStatus(EventStatus.closed));
-        } else {
-            events = getAllEventsWithStatus(status);
-        }
+    private static ExecutorService createUpstreamExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "eonet-upstream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
-        return getEventsByAffectedPlacesNumber(events, affectedPlacesNo);
+    @PreDestroy
+    public void shutdown() {
+        upstreamExecutor.shutdown();
     }
 
-    public List<Event> getAllEventsWithStatus(EventStatus status) {
-        Map<QueryParameterType, String> queryParams = new HashMap<>();
-        queryParams.put(QueryParameterType.status, status.toString());
+    /***
+     * Fetches open events, closed events and categories from EONET and publishes them as a new snapshot.
+     * If any of the fetches fails, the previous snapshot keeps being served. It is run by the
+     * {@link EventDeltaPoller}, as the first load and as the periodic full reconciliation.
+     */
+    public void refreshSnapshot() {
+        refreshSnapshot(Collections.emptyList(), Collections.emptyList(), 0);
+    }
 
-        URLManipulator urlManipulator = new URLManipulator(URL_BASE_EVENTS, queryParams);
-        String json = getNasaJsonResponse(urlManipulator.getUrlWithQueryParams());
+    /***
+     * Like {@link #refreshSnapshot()}, fetching only the events closed in the last days, as the older closed
+     * events are already known, see {@link ClosedEventArchive}. EONET returns the events with a geometry in the
+     * last days, so an event closed upstream whose last geometry is older is in neither list: when a known open
+     * event is missing from both, every closed event is fetched instead.
+     *
+     * @param knownOpenEvents the open events of the previous snapshot
+     * @param knownClosedEvents the closed events kept, unless EONET returns them again as recent or open events
+     * @param closedDays the number of prior days whose closed events are fetched, or 0 for every closed event
+     */
+    public void refreshSnapshot(List<Event> knownOpenEvents, List<Event> knownClosedEvents, long closedDays) {
+        CompletableFuture<List<Event>> openEvents = getEventsAsync(getEventsUrl(EventStatus.open));
+        CompletableFuture<List<Event>> closedEvents = getEventsAsync(getEventsUrl(EventStatus.closed, closedDays));
+        CompletableFuture<List<Category>> categories = CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetchCategories();
+            } catch (JsonProcessingException e) {
+                throw new CompletionException(e);
+            }
+        }, upstreamExecutor);
 
-        List<Event> events = new ArrayList<>();
         try {
-            events = getEventsFromJson(json);
-        } catch (JsonProcessingException e) {
-            LOG.error("Error parsing events json " + e.getMessage());
-        } catch (ParseException e) {
-            LOG.error("Error parsing date from json " + e.getMessage());
+            List<Event> open = openEvents.join();
+            List<Event> closed = closedEvents.join();
+            if (closedDays > 0 && hasMissingEvents(knownOpenEvents, open, closed)) {
+                closed = getEventsAsync(getEventsUrl(EventStatus.closed)).join();
+            }
+            snapshotStore.publish(open, mergeClosedEvents(closed, knownClosedEvents, open), categories.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RestClientException) {
+                LOG.error("Error fetching snapshot from EONET " + cause.getMessage());
+            } else if (cause instanceof ParseException) {
+                LOG.error("Error parsing date from snapshot json " + cause.getMessage());
+            } else {
+                LOG.error("Error parsing snapshot json " + cause.getMessage());
+            }
         }
+    }
 
-        return events;
+    /***
+     *
+     * @return whether any of the known open events is neither in the open nor in the recent closed events
+     */
+    static boolean hasMissingEvents(List<Event> knownOpenEvents, List<Event> openEvents, List<Event> recentClosedEvents) {
+        Set<String> ids = new HashSet<>();
+        openEvents.forEach(event -> ids.add(event.getId()));
+        recentClosedEvents.forEach(event -> ids.add(event.getId()));
+        int missing = 0;
+        for (Event event : knownOpenEvents) {
+            if (!ids.contains(event.getId())) {
+                missing++;
+            }
+        }
+        if (missing > 0) {
+            LOG.info(missing + " open events are missing from the recent events, fetching every closed event.");
+        }
+        return missing > 0;
     }
 
     /***
      *
-     * @param status is the event status: open, closed, all
-     * @param days Limit the number of prior days (including today) from which events will be returned
-     * @return the list with all Events that are either open, or closed limiting the number of prior days
-     * (including today) from which events will be returned
+     * @return the recent closed events, followed by the known closed events EONET did not return
      */
-    public List<Event> getAllEvents(EventStatus status, long days, long affectedPlacesNo) {
-        if (days == 0) {
-            return getAllEvents(status, affectedPlacesNo);
+    private static List<Event> mergeClosedEvents(List<Event> recentEvents, List<Event> knownEvents, List<Event> openEvents) {
+        if (knownEvents.isEmpty()) {
+            return recentEvents;
+        }
+        Set<String> ids = new HashSet<>();
+        recentEvents.forEach(event -> ids.add(event.getId()));
+        openEvents.forEach(event -> ids.add(event.getId()));
+        List<Event> events = new ArrayList<>(recentEvents);
+        for (Event event : knownEvents) {
+            if (ids.add(event.getId())) {
+                events.add(event);
+            }
         }
+        return events;
+    }
 
-        List<Event> events = new ArrayList<>();
+    /***
+     * Answers the query from the current snapshot, starting from the interval index when the query has a time
+     * window. Before the first snapshot is loaded, the events are fetched from EONET as planned by the
+     * {@link EventQueryPlanner}: the filters EONET supports are applied upstream, the others locally.
+     *
+     * @return the events accepted by the query, open events first for status all, or the page asked for by
+     * a paged query
+     */
+    public List<Event> getEvents(EventQuery query) {
+        if (query.isPaged()) {
+            return getEventPage(query).getEvents();
+        }
 
-        if (EventStatus.all.equals(status)) {
-            events.addAll(getAllEventsInRangeWithStatus(EventStatus.open, days));
-            events.addAll(getAllEventsInRangeWithStatus(EventStatus.closed, days));
-            return getEventsByAffectedPlacesNumber(events, affectedPlacesNo);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            return queryPipeline.run(getCandidates(snapshot, query), query);
         }
 
-        events = getAllEventsInRangeWithStatus(status, days);
-        return getEventsByAffectedPlacesNumber(events, affectedPlacesNo);
+        EventQueryPlanner.Plan plan = queryPlanner.plan(query);
+        return queryPipeline.run(getPlannedEvents(plan), plan.getLocalQuery());
     }
 
-    private List<Event> getAllEventsInRangeWithStatus(EventStatus status, long days) {
-        Map<QueryParameterType, String> queryParams = new HashMap<>();
-        queryParams.put(QueryParameterType.status, status.toString());
-        queryParams.put(QueryParameterType.days, String.valueOf(days));
-
-        URLManipulator urlManipulator = new URLManipulator(URL_BASE_EVENTS, queryParams);
-        String json = getNasaJsonResponse(urlManipulator.getUrlWithQueryParams());
+    /***
+     * Like {@link #getEvents(EventQuery)}, with the cursor of the next page. Without a time window, pages are
+     * read from the events the snapshot keeps in paging order, so a page costs about its size.
+     */
+    public EventPage getEventPage(EventQuery query) {
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot == null) {
+            EventQueryPlanner.Plan plan = queryPlanner.plan(query);
+            return queryPipeline.page(getPlannedEvents(plan), plan.getLocalQuery());
+        }
+        if (query.isPaged() && !query.hasTimeWindow()) {
+            return queryPipeline.pageSorted(snapshot.getSortedEvents(query.getStatus()), query);
+        }
+        return queryPipeline.page(getCandidates(snapshot, query), query);
+    }
 
-        List<Event> events = new ArrayList<>();
-        try {
-            events = getEventsFromJson(json);
-        } catch (JsonProcessingException e) {
-            LOG.error("Error parsing events json " + e.getMessage());
-        } catch (ParseException e) {
-            LOG.error("Error parsing date from json " + e.getMessage());
+    private List<Event> getCandidates(EventSnapshot snapshot, EventQuery query) {
+        List<Event> candidates = null;
+        if (query.hasTimeWindow()) {
+            candidates = intervalIndex.getEventsOverlapping(query.getFrom(), query.getTo());
         }
+        return candidates == null ? snapshot.getEvents(query.getStatus()) : candidates;
+    }
 
-        return events;
+    private List<Event> getPlannedEvents(EventQueryPlanner.Plan plan) {
+        if (plan.getUrls().size() == 2) {
+            return getOpenAndClosedEvents(plan.getUrls().get(0), plan.getUrls().get(1));
+        }
+        return getEvents(plan.getUrls().get(0));
     }
 
     /***
@@ -137,11 +303,14 @@ public class APIConsumer {
      * @return all available categories
      */
     public List<Category> getAllCategories() {
-        String json = getNasaJsonResponse(URL_BASE_CATEGORIES);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            return snapshot.getCategories();
+        }
 
         List<Category> categories = new ArrayList<>();
         try {
-            categories = getCategoriesFromJson(json);
+            categories = fetchCategories();
         } catch (JsonProcessingException e) {
             LOG.error("Error parsing categories json " + e.getMessage());
         }
@@ -149,115 +318,199 @@ public class APIConsumer {
         return categories;
     }
 
-    public List<Event> getAllEventsFromCategory(int categoryId, EventStatus status, long priorDays, long affectedPlacesNo) {
-        String additionalQueries = "";
-        if (priorDays != 0) {
-            additionalQueries += "&days=" + priorDays;
-        }
+    String getEventsUrl(EventStatus status) {
+        return getEventsUrl(status, 0);
+    }
 
-        String json;
+    /***
+     *
+     * @param days the number of prior days EONET should return the events of, or 0 for all events
+     * @return the url of the EONET events with the given status
+     */
+    String getEventsUrl(EventStatus status, long days) {
+        return queryPlanner.plan(EventQuery.builder().status(status).priorDays(days).build()).getUrls().get(0);
+    }
+
+    private List<Event> getEvents(String url) {
         List<Event> events = new ArrayList<>();
-        if (EventStatus.all.equals(status)) {
-            json = getNasaJsonResponse(URL_BASE_CATEGORIES + SLASH + categoryId + "?status=" + EventStatus.open + additionalQueries);
+        try {
+            events = fetchEvents(url);
+        } catch (JsonProcessingException e) {
+            LOG.error("Error parsing events json " + e.getMessage());
+        } catch (ParseException e) {
+            LOG.error("Error parsing date from json " + e.getMessage());
+        }
 
+        return events;
+    }
+
+    /***
+     * Fetches and parses the events behind the given url on the upstream executor.
+     */
+    CompletableFuture<List<Event>> getEventsAsync(String url) {
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                events = getEventsFromJson(json);
-            } catch (JsonProcessingException e) {
-                LOG.error("Error parsing events json " + e.getMessage());
-            } catch (ParseException e) {
-                LOG.error("Error parsing date from json " + e.getMessage());
+                return fetchEvents(url);
+            } catch (JsonProcessingException | ParseException e) {
+                throw new CompletionException(e);
             }
+        }, upstreamExecutor);
+    }
+
+    /***
+     * Fetches and parses the open and the closed events at the same time, so the call costs about as much
+     * as the slower of the two. The result always lists the open events first, then the closed ones.
+     */
+    private List<Event> getOpenAndClosedEvents(String openEventsUrl, String closedEventsUrl) {
+        CompletableFuture<List<Event>> openEvents = getEventsAsync(openEventsUrl);
+        CompletableFuture<List<Event>> closedEvents = getEventsAsync(closedEventsUrl);
 
-            json = getNasaJsonResponse(URL_BASE_CATEGORIES + SLASH + categoryId + "?status=" + EventStatus.closed + additionalQueries);
+        List<Event> events = new ArrayList<>(joinEvents(openEvents));
+        events.addAll(joinEvents(closedEvents));
+        return events;
+    }
 
-            try {
-                events.addAll(getEventsFromJson(json));
-            } catch (JsonProcessingException e) {
-                LOG.error("Error parsing events json " + e.getMessage());
-            } catch (ParseException e) {
-                LOG.error("Error parsing date from json " + e.getMessage());
+    /***
+     * Waits for the given events. Parse errors are logged and yield no events, as on the synchronous path,
+     * while upstream errors are rethrown to the caller.
+     */
+    private List<Event> joinEvents(CompletableFuture<List<Event>> events) {
+        try {
+            return events.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JsonProcessingException) {
+                LOG.error("Error parsing events json " + cause.getMessage());
+            } else if (cause instanceof ParseException) {
+                LOG.error("Error parsing date from json " + cause.getMessage());
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw e;
             }
-            return getEventsByAffectedPlacesNumber(events, affectedPlacesNo);
+            return new ArrayList<>();
         }
+    }
 
-        json = getNasaJsonResponse(URL_BASE_CATEGORIES + SLASH + categoryId + "?status=" + status + additionalQueries);
+    /***
+     *
+     * @return how many upstream fetches ran, how many were served by an identical fetch already in flight,
+     * how many are in flight right now and how many were answered with 304 Not Modified
+     */
+    public Map<String, Long> getCoalescingStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("executedFetches", eventFetches.getExecutedCalls() + categoryFetches.getExecutedCalls());
+        statistics.put("coalescedFetches", eventFetches.getCoalescedCalls() + categoryFetches.getCoalescedCalls());
+        statistics.put("inFlightFetches", (long) eventFetches.getInFlightCalls() + categoryFetches.getInFlightCalls());
+        statistics.put("notModifiedResponses", conditionalFetcher.getNotModifiedResponses());
+        return statistics;
+    }
 
+    /***
+     * Fetches and parses the events behind the given url. Concurrent calls for the same url share one upstream
+     * fetch and one parsed, unmodifiable result.
+     */
+    private List<Event> fetchEvents(String url) throws JsonProcessingException, ParseException {
         try {
-            events = getEventsFromJson(json);
-        } catch (JsonProcessingException e) {
-            LOG.error("Error parsing events json " + e.getMessage());
-        } catch (ParseException e) {
-            LOG.error("Error parsing date from json " + e.getMessage());
+            return eventFetches.execute(url, () -> fetchAndParseEvents(url));
+        } catch (JsonProcessingException | ParseException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EONETException("Error fetching " + url + " " + e.getMessage());
         }
-
-        return getEventsByAffectedPlacesNumber(events, affectedPlacesNo);
     }
 
-    private String getNasaJsonResponse(String url) {
-        return restTemplate.getForObject(url, String.class);
+    private List<Category> fetchCategories() throws JsonProcessingException {
+        try {
+            return categoryFetches.execute(URL_BASE_CATEGORIES, () -> conditionalFetcher.fetch(URL_BASE_CATEGORIES,
+                    getUpstreamTags(URL_BASE_CATEGORIES), this::parseCategories));
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EONETException("Error fetching " + URL_BASE_CATEGORIES + " " + e.getMessage());
+        }
     }
 
-    private List<Event> getEventsFromJson(String json) throws JsonProcessingException, ParseException {
-        JsonNode eventsNode = jsonParser.getJsonNodeFrom(json, EVENTS);
-
-        List<Event> events = new ArrayList<>();
-        for (Iterator<JsonNode> eventsIterator = eventsNode.elements(); eventsIterator.hasNext(); ) {
-            JsonNode eventNode = eventsIterator.next();
-            String eventId = eventNode.get(ID).asText();
-            String eventTitle = eventNode.get(TITLE).asText();
-            String eventDescription = eventNode.get(DESCRIPTION).asText();
-            String eventLink = eventNode.get(LINK).asText();
+    /***
+     * Fetches and parses the events behind the given url with the configured parser: the tree parser reads the
+     * whole response into a String and a JsonNode first, the streaming parser reads the events off the response stream.
+     * An unchanged response reuses the events parsed the previous time. With the columnar store, the parsed events
+     * are compacted before they are kept, so only {@link CompactEvent}s stay in memory.
+     */
+    private List<Event> fetchAndParseEvents(String url) throws JsonProcessingException, ParseException {
+        return conditionalFetcher.fetch(url, getUpstreamTags(url), this::parseEvents);
+    }
 
-            JsonNode categoriesNode = eventNode.get(CATEGORIES);
-            List<Category> categories = jsonParser.getCategoriesFromJsonNode(categoriesNode);
+    /***
+     *
+     * @return the canonical categories and sources of the parsed events, to share them with the events read back
+     * from disk
+     */
+    ModelInterner getModelInterner() {
+        return modelInterner;
+    }
 
-            JsonNode sourcesNode = eventNode.get(SOURCES);
-            List<Source> sources = jsonParser.getSourcesFromJsonNode(sourcesNode);
+    /***
+     * Parses an EONET events response with the configured parser, sharing the categories and sources of the
+     * events with the other parsed events, and compacts the events with the columnar store. It is also the parse
+     * path of the {@link ReactiveAPIConsumer}.
+     *
+     * @return the unmodifiable parsed events
+     */
+    List<Event> parseEvents(InputStream body) throws IOException, ParseException {
+        long parseStart = System.nanoTime();
+        List<Event> events;
+        if (ParserType.streaming.equals(parserType)) {
+            events = eventStreamParser.getEventsFrom(body);
+        } else {
+            events = getEventsFromJson(getNasaJsonResponse(body));
+        }
+        parseTimer.record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
 
+        parsedEvents.record(events.size());
+        parsedGeometries.record(events.stream()
+                .mapToInt(event -> event.getGeometries() == null ? 0 : event.getGeometries().size())
+                .sum());
+        return Collections.unmodifiableList(columnarStore ? CompactEvent.compact(events) : events);
+    }
 
-            JsonNode geometriesNode = eventNode.get(GEOMETRIES);
-            List<Geometry> geometries = jsonParser.getGeometriesFromJsonNode(geometriesNode);
+    /***
+     *
+     * @return the unmodifiable categories of an EONET categories response
+     */
+    List<Category> parseCategories(InputStream body) throws IOException {
+        return Collections.unmodifiableList(getCategoriesFromJson(getNasaJsonResponse(body)));
+    }
 
-            Date closedDate = null;
-            if (eventNode.has(CLOSED)) {
-                closedDate = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'").parse(eventNode.get("closed").asText());
-            }
+    /***
+     * Tags the upstream metrics of a url with the requested resource (events, or the categories list), the
+     * requested event status and the category the events are requested from.
+     */
+    static Tags getUpstreamTags(String url) {
+        UriComponents uri = UriComponentsBuilder.fromHttpUrl(url).build();
+        List<String> pathSegments = uri.getPathSegments();
+        String lastSegment = pathSegments.get(pathSegments.size() - 1);
+        boolean categoriesList = CATEGORIES.equals(lastSegment);
+        boolean categoryEvents = pathSegments.size() > 1 && CATEGORIES.equals(pathSegments.get(pathSegments.size() - 2));
+
+        String status = uri.getQueryParams().getFirst(QueryParameterType.status.name());
+        return Tags.of(
+                "resource", categoriesList ? CATEGORIES : EVENTS,
+                "status", status == null ? "none" : status,
+                "category", categoryEvents ? lastSegment : "none");
+    }
 
-            Event event = new Event();
-            event.setId(eventId);
-            event.setTitle(eventTitle);
-            event.setDescription(eventDescription);
-            event.setLink(eventLink);
-            event.setCategories(categories);
-            event.setSources(sources);
-            event.setGeometries(geometries);
-            event.setClosed(closedDate);
-            events.add(event);
-        }
+    private String getNasaJsonResponse(InputStream body) throws IOException {
+        return StreamUtils.copyToString(body, StandardCharsets.UTF_8);
+    }
 
-        return events;
+    private List<Event> getEventsFromJson(String json) throws JsonProcessingException, ParseException {
+        JsonNode eventsNode = jsonParser.getJsonNodeFrom(json, EVENTS);
+        return jsonParser.getEventsFromJsonNode(eventsNode);
     }
 
     private List<Category> getCategoriesFromJson(String json) throws JsonProcessingException {
         JsonNode categoriesNode = jsonParser.getJsonNodeFrom(json, CATEGORIES);
         return jsonParser.getCategoriesFromJsonNode(categoriesNode);
     }
-
-    private List<Event> getEventsByAffectedPlacesNumber(List<Event> events, long affectedPlacesNo) {
-        if (affectedPlacesNo == 0) {
-            return events;
-        }
-
-        for (int i = 0; i < events.size(); i++) {
-            List<Geometry> geometries = events.get(i).getGeometries();
-            if (geometries != null) {
-                if (geometries.size() < affectedPlacesNo) {
-                    events.remove(i);
-                    i--;
-                }
-            }
-        }
-
-        return events;
-    }
 }
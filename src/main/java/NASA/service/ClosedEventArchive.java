@@ -0,0 +1,288 @@
+package NASA.service;
+
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.service.query.EventCursor;
+import NASA.service.query.EventQuery;
+import NASA.service.store.ArchiveSegment;
+import NASA.service.store.CompactEvent;
+import NASA.utils.ModelInterner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/***
+ * Local archive of the closed events, one append-only {@link ArchiveSegment} per month the events were closed in
+ * (UTC). Closed events rarely change, so every closed event of a published snapshot is appended once, on a
+ * background thread, and kept for good; an archived event EONET changes later is appended again to the segment it
+ * was first archived in, whose summary then covers both copies. Historical queries over closed events select the
+ * events from the summaries of the segments that may match, without decoding any record, and answer with their
+ * copies in the snapshot the archive caught up with, only while that snapshot is the current one. The full
+ * refreshes fetch only the recently closed events from EONET, keeping the other closed events they already have.
+ */
+@Component
+public class ClosedEventArchive implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(ClosedEventArchive.class.getName());
+    private static final String SEGMENT_PREFIX = "closed-";
+
+    private final EventSnapshotStore snapshotStore;
+    private final Path directory;
+    private final boolean columnarStore;
+    private final NavigableMap<String, ArchiveSegment> segments = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    private final Map<String, ArchiveSegment> segmentsById = new ConcurrentHashMap<>();
+    private final ModelInterner modelInterner;
+    private final Counter scannedSegments;
+    private final Counter skippedSegments;
+    private final AtomicReference<EventSnapshot> pendingSnapshot = new AtomicReference<>();
+    private volatile ArchivedSnapshot archivedSnapshot;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eonet-archive-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /***
+     *
+     * @param directory the directory of the segments, or an empty path to keep no archive
+     */
+    public ClosedEventArchive(EventSnapshotStore snapshotStore, APIConsumer apiConsumer, MeterRegistry meterRegistry,
+                              @Value("${eonet.archive.directory:eonet-archive}") String directory,
+                              @Value("${eonet.store.columnar:true}") boolean columnarStore) {
+        this.snapshotStore = snapshotStore;
+        this.modelInterner = apiConsumer.getModelInterner();
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.columnarStore = columnarStore;
+
+        Gauge.builder("eonet.archive.events", segmentsById, Map::size)
+                .description("Closed events kept in the archive")
+                .register(meterRegistry);
+        Gauge.builder("eonet.archive.segments", segments, Map::size)
+                .description("Monthly segments of the archive")
+                .register(meterRegistry);
+        this.scannedSegments = Counter.builder("eonet.archive.queries.segments")
+                .description("Segments read or skipped by their summary when querying the archive")
+                .tag("result", "scanned")
+                .register(meterRegistry);
+        this.skippedSegments = Counter.builder("eonet.archive.queries.segments")
+                .description("Segments read or skipped by their summary when querying the archive")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+    }
+
+    /***
+     * Opens the segments in the directory, then listens for the snapshots whose closed events to archive. It runs
+     * before the first refresh, so that refresh may already fetch the recent closures only.
+     */
+    @PostConstruct
+    public void open() {
+        if (directory == null) {
+            return;
+        }
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + ArchiveSegment.EVENTS_SUFFIX)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    String name = fileName.substring(0, fileName.length() - ArchiveSegment.EVENTS_SUFFIX.length());
+                    ArchiveSegment segment = ArchiveSegment.open(directory, name);
+                    segments.put(name, segment);
+                    for (String eventId : segment.getEventIds()) {
+                        segmentsById.put(eventId, segment);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.error("Error opening archive " + directory + " " + e.getMessage());
+            }
+            LOG.info("Opened archive " + directory + " with " + segmentsById.size() + " events in " + segments.size() + " segments.");
+        }
+        snapshotStore.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /***
+     *
+     * @return whether the archive holds closed events to keep across full refreshes
+     */
+    public boolean isSeeded() {
+        return !segmentsById.isEmpty();
+    }
+
+    /***
+     *
+     * @return whether the query is a historical one the archive answers: every closed event within a time window,
+     * not a page of them, once every closed event of the current snapshot is archived
+     */
+    public boolean canAnswer(EventQuery query) {
+        ArchivedSnapshot archived = archivedSnapshot;
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        return archived != null && snapshot != null && archived.version == snapshot.getVersion()
+                && EventStatus.closed.equals(query.getStatus()) && query.hasTimeWindow() && !query.isPaged();
+    }
+
+    /***
+     * Selects the events accepted by the query among the ids of the segments that may hold some, as their copies in
+     * the last archived snapshot; the events that snapshot no longer has as closed are left out.
+     *
+     * @return the accepted events in the paging order of {@link EventCursor}, as from the snapshot
+     */
+    public List<Event> getEvents(EventQuery query) {
+        Map<String, Event> closedEvents = archivedSnapshot.closedEvents;
+        Predicate<Event> predicate = query.toPredicate(System.currentTimeMillis());
+        List<Event> events = new ArrayList<>();
+        int candidates = 0;
+        for (ArchiveSegment segment : segments.values()) {
+            if (!segment.mayContain(query.getFrom(), query.getTo(), query.getCategoryId())) {
+                continue;
+            }
+            candidates++;
+            for (String eventId : segment.getEventIds()) {
+                Event event = closedEvents.get(eventId);
+                if (event != null && predicate.test(event)) {
+                    events.add(event);
+                }
+            }
+        }
+        scannedSegments.increment(candidates);
+        skippedSegments.increment(segments.size() - candidates);
+        return EventCursor.sort(events);
+    }
+
+    /***
+     *
+     * @return every archived event, as its latest archived copy, sharing its categories and sources with the parsed
+     * events, and compacted with the columnar store
+     */
+    public List<Event> getAllEvents() {
+        Map<String, Event> events = new LinkedHashMap<>();
+        for (ArchiveSegment segment : segments.values()) {
+            try {
+                for (Iterator<Event> iterator = segment.iterator(); iterator.hasNext(); ) {
+                    Event event = iterator.next();
+                    event.setCategories(modelInterner.internCategories(event.getCategories()));
+                    event.setSources(modelInterner.internSources(event.getSources()));
+                    events.put(event.getId(), event);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading archive segment " + segment.getName(), e);
+            }
+        }
+        List<Event> allEvents = new ArrayList<>(events.values());
+        return columnarStore ? CompactEvent.compact(allEvents) : allEvents;
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        if (pendingSnapshot.getAndSet(current) == null) {
+            writer.execute(this::archivePendingSnapshot);
+        }
+    }
+
+    /***
+     * Appends the new closed events of the snapshot to the segment of their closing month, and the archived events
+     * the snapshot changed to the segment they are in. The events left as the same instance since the last archived
+     * snapshot cost an identity check; the first snapshot archived after opening the archive only appends new events.
+     */
+    private void archivePendingSnapshot() {
+        EventSnapshot snapshot = pendingSnapshot.getAndSet(null);
+        ArchivedSnapshot previous = archivedSnapshot;
+        Map<String, Event> closedEvents = new HashMap<>();
+        Map<String, List<Event>> eventsBySegment = new TreeMap<>();
+        int updated = 0;
+        for (Event event : snapshot.getClosedEvents()) {
+            if (event.getClosed() == null) {
+                continue;
+            }
+            closedEvents.put(event.getId(), event);
+            ArchiveSegment segment = segmentsById.get(event.getId());
+            String segmentName;
+            if (segment == null) {
+                YearMonth month = YearMonth.from(Instant.ofEpochMilli(event.getClosed().getTime()).atZone(ZoneOffset.UTC));
+                segmentName = SEGMENT_PREFIX + month;
+            } else {
+                Event archived = previous == null ? null : previous.closedEvents.get(event.getId());
+                if (archived == null || archived == event || EventChangeFeed.hasSameContent(archived, event)) {
+                    continue;
+                }
+                segmentName = segment.getName();
+                updated++;
+            }
+            eventsBySegment.computeIfAbsent(segmentName, name -> new ArrayList<>()).add(event);
+        }
+
+        int archived = 0;
+        boolean failed = false;
+        for (Map.Entry<String, List<Event>> entry : eventsBySegment.entrySet()) {
+            try {
+                ArchiveSegment segment = segments.get(entry.getKey());
+                if (segment == null) {
+                    segment = ArchiveSegment.open(directory, entry.getKey());
+                    segments.put(entry.getKey(), segment);
+                }
+                segment.append(entry.getValue());
+                for (Event event : entry.getValue()) {
+                    segmentsById.put(event.getId(), segment);
+                }
+                archived += entry.getValue().size();
+            } catch (IOException e) {
+                LOG.error("Error appending to archive segment " + entry.getKey() + " " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (!failed) {
+            archivedSnapshot = new ArchivedSnapshot(snapshot.getVersion(), closedEvents);
+        }
+        if (archived > 0) {
+            LOG.info("Archived " + (archived - updated) + " closed and " + updated + " changed events of snapshot "
+                    + snapshot.getVersion() + " in " + eventsBySegment.size() + " segments.");
+        }
+    }
+
+    /***
+     * The closed events of the last snapshot whose closed events were all archived, as the instances archived.
+     */
+    private static class ArchivedSnapshot {
+        private final long version;
+        private final Map<String, Event> closedEvents;
+
+        private ArchivedSnapshot(long version, Map<String, Event> closedEvents) {
+            this.version = version;
+            this.closedEvents = closedEvents;
+        }
+    }
+}
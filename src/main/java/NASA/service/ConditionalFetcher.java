@@ -0,0 +1,159 @@
+package NASA.service;
+
+import NASA.utils.CountingInputStream;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Fetches EONET urls with conditional GETs. The ETag and Last-Modified validators of every response are kept
+ * together with its parsed result, and sent back as If-None-Match and If-Modified-Since on the next fetch of the
+ * same url, so a 304 Not Modified answer reuses the parsed result instead of downloading and parsing it again.
+ * Every fetch is timed as eonet.upstream.requests, tagged with its HTTP status, and the size of every downloaded
+ * body is recorded as eonet.upstream.response.size.
+ */
+public class ConditionalFetcher {
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CachedResponse> cachedResponses;
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+
+    /***
+     *
+     * @param maxCachedResponses the number of urls whose validators and parsed results are kept, least recently
+     *                           used first out
+     */
+    public ConditionalFetcher(RestTemplate restTemplate, MeterRegistry meterRegistry, int maxCachedResponses) {
+        this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
+        this.cachedResponses = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxCachedResponses;
+            }
+        });
+
+        FunctionCounter.builder("eonet.upstream.not.modified", notModifiedResponses, AtomicLong::get)
+                .description("Upstream fetches answered with 304 Not Modified, which reused the previous result")
+                .register(meterRegistry);
+    }
+
+    /***
+     *
+     * @param url the url to fetch
+     * @param tags the tags of the request and response size metrics of the fetch
+     * @param parser reads the result from the response body; the result is shared by later unmodified fetches,
+     *               so it must not be modified
+     * @return the parsed result of the response, or the previous result if the response was 304 Not Modified
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fetch(String url, Tags tags, BodyParser<T> parser) throws JsonProcessingException, ParseException {
+        CachedResponse cachedResponse = cachedResponses.get(url);
+        String[] httpStatus = {"IO_ERROR"};
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return restTemplate.execute(url, HttpMethod.GET, request -> {
+                if (cachedResponse != null) {
+                    if (cachedResponse.etag != null) {
+                        request.getHeaders().setIfNoneMatch(cachedResponse.etag);
+                    }
+                    if (cachedResponse.lastModified != -1) {
+                        request.getHeaders().setIfModifiedSince(cachedResponse.lastModified);
+                    }
+                }
+            }, response -> {
+                httpStatus[0] = String.valueOf(response.getRawStatusCode());
+                if (cachedResponse != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    notModifiedResponses.incrementAndGet();
+                    return (T) cachedResponse.result;
+                }
+
+                T result;
+                CountingInputStream body = new CountingInputStream(response.getBody());
+                try {
+                    result = parser.parse(body);
+                } catch (JsonProcessingException | ParseException e) {
+                    throw new ParseFailure(e);
+                } finally {
+                    DistributionSummary.builder("eonet.upstream.response.size")
+                            .description("Decoded size of the EONET response bodies read")
+                            .baseUnit("bytes")
+                            .tags(tags)
+                            .register(meterRegistry)
+                            .record(body.getCount());
+                }
+
+                HttpHeaders headers = response.getHeaders();
+                if (headers.getETag() != null || headers.getLastModified() != -1) {
+                    cachedResponses.put(url, new CachedResponse(headers.getETag(), headers.getLastModified(), result));
+                } else {
+                    cachedResponses.remove(url);
+                }
+                return result;
+            });
+        } catch (HttpStatusCodeException e) {
+            httpStatus[0] = String.valueOf(e.getRawStatusCode());
+            throw e;
+        } catch (ParseFailure e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            }
+            throw (JsonProcessingException) e.getCause();
+        } finally {
+            sample.stop(Timer.builder("eonet.upstream.requests")
+                    .description("EONET fetches, from sending the request to reading the body")
+                    .tags(tags)
+                    .tag("http.status", httpStatus[0])
+                    .register(meterRegistry));
+        }
+    }
+
+    /***
+     *
+     * @return the number of fetches answered with 304 Not Modified, which reused the previous result
+     */
+    public long getNotModifiedResponses() {
+        return notModifiedResponses.get();
+    }
+
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException, ParseException;
+    }
+
+    private static class CachedResponse {
+        private final String etag;
+        private final long lastModified;
+        private final Object result;
+
+        private CachedResponse(String etag, long lastModified, Object result) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.result = result;
+        }
+    }
+
+    /***
+     * Carries a parse error through RestTemplate, which would otherwise report it as an I/O error.
+     */
+    private static class ParseFailure extends RuntimeException {
+        private ParseFailure(Exception cause) {
+            super(cause);
+        }
+    }
+}
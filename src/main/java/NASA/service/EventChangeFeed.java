@@ -0,0 +1,259 @@
+package NASA.service;
+
+import NASA.model.Event;
+import NASA.model.enums.EventChangeType;
+import NASA.model.enums.EventStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/***
+ * Streams the changes between successive snapshots as typed server-sent events: added, updated, closed and
+ * removed events, each carrying the event. A new subscriber first gets one snapshot event with every event of the
+ * current snapshot, then the changes only. Every change has an id, and the latest changes are kept, so a client
+ * reconnecting with the Last-Event-ID it got gets the changes it missed instead of a new snapshot event, as long
+ * as they are still kept. The ids start with the start time of this feed, so ids of a previous run are never
+ * resumed from. A subscriber falling too far behind is completed, see {@link SseSubscriber}, to reconnect and
+ * resume the same way.
+ */
+@Component
+public class EventChangeFeed implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(EventChangeFeed.class.getName());
+    public static final String SNAPSHOT_EVENT = "snapshot";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Object lock = new Object();
+    private final Deque<Change> history = new ArrayDeque<>();
+    private final Set<SseSubscriber> subscribers = new HashSet<>();
+    private final Map<EventChangeType, Counter> changeCounters = new EnumMap<>(EventChangeType.class);
+    private final int historySize;
+    private final int maxPending;
+    private final Duration heartbeatPeriod;
+
+    private EventSnapshot snapshot;
+    private long sequence;
+
+    /***
+     *
+     * @param historySize the number of latest changes kept to resume from
+     * @param maxPending the number of events a subscriber may have waiting to be sent before it is completed
+     * @param heartbeatMillis the period of the comments sent between the events, so idle connections stay open
+     *                        through proxies and closed ones are noticed
+     */
+    public EventChangeFeed(EventSnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                           @Value("${eonet.stream.changes.history-size:4096}") int historySize,
+                           @Value("${eonet.stream.changes.max-pending:1024}") int maxPending,
+                           @Value("${eonet.stream.changes.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.historySize = historySize;
+        this.maxPending = maxPending;
+        this.heartbeatPeriod = Duration.ofMillis(heartbeatMillis);
+
+        for (EventChangeType type : EventChangeType.values()) {
+            changeCounters.put(type, Counter.builder("eonet.stream.changes")
+                    .description("Changes found between successive snapshots")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("eonet.stream.changes.subscribers", this, EventChangeFeed::getSubscribers)
+                .description("Clients subscribed to the event changes stream")
+                .register(meterRegistry);
+
+        snapshotStore.addListener(this);
+        EventSnapshot current = snapshotStore.getSnapshot();
+        if (current != null) {
+            onSnapshot(null, current);
+        }
+    }
+
+    /***
+     *
+     * @param lastEventId the id of the last event the client got, or null for a new client
+     * @return the missed changes when they are still kept, otherwise a snapshot event, followed by the changes
+     * of every new snapshot
+     */
+    public Flux<ServerSentEvent<Object>> getChanges(String lastEventId) {
+        return SseSubscriber.stream(() -> new SseSubscriber("change", maxPending),
+                subscriber -> subscribe(subscriber, lastEventId), this::unsubscribe, heartbeatPeriod);
+    }
+
+    public int getSubscribers() {
+        synchronized (lock) {
+            return subscribers.size();
+        }
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        List<Change> changes = previous == null ? Collections.emptyList() : getChanges(previous, current);
+        synchronized (lock) {
+            boolean first = snapshot == null;
+            snapshot = current;
+            List<ServerSentEvent<Object>> events = new ArrayList<>(changes.size());
+            for (Change change : changes) {
+                change.sequence = ++sequence;
+                history.addLast(change);
+                events.add(toServerSentEvent(change));
+                changeCounters.get(change.type).increment();
+            }
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+            if (first) {
+                events = Collections.singletonList(getSnapshotEvent());
+            }
+
+            for (SseSubscriber subscriber : new ArrayList<>(subscribers)) {
+                if (!subscriber.offer(events)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            LOG.info("Streamed " + changes.size() + " changes of snapshot " + current.getVersion() + ".");
+        }
+    }
+
+    private void subscribe(SseSubscriber subscriber, String lastEventId) {
+        synchronized (lock) {
+            getInitialEvents(lastEventId).forEach(subscriber::send);
+            subscribers.add(subscriber);
+        }
+    }
+
+    private void unsubscribe(SseSubscriber subscriber) {
+        synchronized (lock) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /***
+     * Must be called holding the lock.
+     */
+    private List<ServerSentEvent<Object>> getInitialEvents(String lastEventId) {
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        long resumeAfter = getSequence(lastEventId);
+        long oldestKept = history.isEmpty() ? sequence + 1 : history.peekFirst().sequence;
+        if (resumeAfter < oldestKept - 1 || resumeAfter > sequence) {
+            return Collections.singletonList(getSnapshotEvent());
+        }
+
+        List<ServerSentEvent<Object>> events = new ArrayList<>();
+        for (Change change : history) {
+            if (change.sequence > resumeAfter) {
+                events.add(toServerSentEvent(change));
+            }
+        }
+        return events;
+    }
+
+    /***
+     *
+     * @return the sequence of the change the event id was given to, or -1 if it was not given by this feed
+     */
+    private long getSequence(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /***
+     * Must be called holding the lock. The snapshot event has the id of the latest change, so resuming from it
+     * starts with the next change.
+     */
+    private ServerSentEvent<Object> getSnapshotEvent() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("version", snapshot.getVersion());
+        data.put("events", snapshot.getEvents(EventStatus.all));
+        return ServerSentEvent.builder((Object) data)
+                .id(epoch + "-" + sequence)
+                .event(SNAPSHOT_EVENT)
+                .build();
+    }
+
+    private ServerSentEvent<Object> toServerSentEvent(Change change) {
+        return ServerSentEvent.builder((Object) change.event)
+                .id(epoch + "-" + change.sequence)
+                .event(change.type.name())
+                .build();
+    }
+
+    /***
+     * Compares the snapshots by event id. The events the snapshots share as the same instance are unchanged, as
+     * after a poll that merged changes into only a few events; the others are compared by value.
+     *
+     * @return the changes from the previous to the current snapshot, the removed events last
+     */
+    private static List<Change> getChanges(EventSnapshot previous, EventSnapshot current) {
+        Map<String, Event> previousEvents = new HashMap<>();
+        for (Event event : previous.getEvents(EventStatus.all)) {
+            previousEvents.put(event.getId(), event);
+        }
+
+        List<Change> changes = new ArrayList<>();
+        for (Event event : current.getEvents(EventStatus.all)) {
+            Event previousEvent = previousEvents.remove(event.getId());
+            if (previousEvent == null) {
+                changes.add(new Change(EventChangeType.added, event));
+            } else if (previousEvent != event && !hasSameContent(previousEvent, event)) {
+                boolean closed = previousEvent.getClosed() == null && event.getClosed() != null;
+                changes.add(new Change(closed ? EventChangeType.closed : EventChangeType.updated, event));
+            }
+        }
+        for (Event event : previousEvents.values()) {
+            changes.add(new Change(EventChangeType.removed, event));
+        }
+        return changes;
+    }
+
+    /***
+     *
+     * @return whether the events have the same fields and geometries
+     */
+    static boolean hasSameContent(Event previous, Event current) {
+        return Objects.equals(previous.getClosed(), current.getClosed())
+                && Objects.equals(previous.getTitle(), current.getTitle())
+                && Objects.equals(previous.getDescription(), current.getDescription())
+                && Objects.equals(previous.getLink(), current.getLink())
+                && Objects.equals(previous.getCategories(), current.getCategories())
+                && Objects.equals(previous.getSources(), current.getSources())
+                && Objects.equals(previous.getGeometries(), current.getGeometries());
+    }
+
+    private static class Change {
+        private final EventChangeType type;
+        private final Event event;
+        private long sequence;
+
+        private Change(EventChangeType type, Event event) {
+            this.type = type;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package NASA.service;
+
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.EventStatus;
+import NASA.service.store.CompactEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/***
+ * Keeps the snapshot up to date with the open events and the events EONET closed in the last days, instead of
+ * fetching every event at each refresh. The open events are fetched in full, which costs a 304 Not Modified when
+ * they did not change, as EONET returns only the events with a geometry in the last days: an open event closed
+ * upstream whose last geometry is older is in neither response, and when a known open event is missing from both,
+ * every closed event is fetched as on a full refresh. The changes are merged into the resident events by id: new
+ * events are added, new geometries are appended to the known events and events closed upstream move from the open
+ * to the closed events. A poll that changes nothing publishes no snapshot. Events removed upstream and any other drift are repaired by a full
+ * refresh every few polls. The first poll is always a full refresh, which loads the first snapshot or reconciles
+ * the snapshot restored from disk. Once the {@link ClosedEventArchive} holds closed events, a full refresh fetches
+ * only the recently closed events and keeps the older ones of the snapshot, or of the archive when there is no
+ * snapshot yet; when an open event of the snapshot is in neither response, it fetches every closed event.
+ */
+@Component
+public class EventDeltaPoller {
+    private static final Logger LOG = LogManager.getLogger(EventDeltaPoller.class.getName());
+
+    private final APIConsumer apiConsumer;
+    private final EventSnapshotStore snapshotStore;
+    private final ClosedEventArchive archive;
+    private final boolean enabled;
+    private final long days;
+    private final int fullRefreshEvery;
+    private final long archiveRecentDays;
+    private final boolean columnarStore;
+
+    private final Counter fullRefreshes;
+    private final Counter deltaRefreshes;
+    private final Counter addedChanges;
+    private final Counter updatedChanges;
+    private final Counter closedChanges;
+
+    private int pollsSinceFullRefresh;
+
+    /***
+     *
+     * @param enabled whether the polls fetch the changes only, or every event as before
+     * @param days the number of prior days whose closed events a poll fetches; it should cover the refresh
+     *             interval
+     * @param fullRefreshEvery the number of polls after which the next poll is a full refresh
+     * @param archiveRecentDays the number of prior days whose closed events a full refresh fetches once the
+     *                          archive holds the older ones
+     */
+    public EventDeltaPoller(APIConsumer apiConsumer, EventSnapshotStore snapshotStore, ClosedEventArchive archive,
+                            MeterRegistry meterRegistry,
+                            @Value("${eonet.snapshot.delta.enabled:true}") boolean enabled,
+                            @Value("${eonet.snapshot.delta.days:1}") long days,
+                            @Value("${eonet.snapshot.delta.full-refresh-every:12}") int fullRefreshEvery,
+                            @Value("${eonet.archive.recent-days:30}") long archiveRecentDays,
+                            @Value("${eonet.store.columnar:true}") boolean columnarStore) {
+        this.apiConsumer = apiConsumer;
+        this.snapshotStore = snapshotStore;
+        this.archive = archive;
+        this.enabled = enabled;
+        this.days = days;
+        this.fullRefreshEvery = fullRefreshEvery;
+        this.archiveRecentDays = archiveRecentDays;
+        this.pollsSinceFullRefresh = fullRefreshEvery;
+        this.columnarStore = columnarStore;
+
+        this.fullRefreshes = Counter.builder("eonet.snapshot.refreshes")
+                .description("Snapshot refreshes, fetching either every event or the recent changes only")
+                .tag("type", "full")
+                .register(meterRegistry);
+        this.deltaRefreshes = Counter.builder("eonet.snapshot.refreshes")
+                .description("Snapshot refreshes, fetching either every event or the recent changes only")
+                .tag("type", "delta")
+                .register(meterRegistry);
+        this.addedChanges = Counter.builder("eonet.snapshot.delta.events")
+                .description("Events changed by the merged recent changes")
+                .tag("change", "added")
+                .register(meterRegistry);
+        this.updatedChanges = Counter.builder("eonet.snapshot.delta.events")
+                .description("Events changed by the merged recent changes")
+                .tag("change", "updated")
+                .register(meterRegistry);
+        this.closedChanges = Counter.builder("eonet.snapshot.delta.events")
+                .description("Events changed by the merged recent changes")
+                .tag("change", "closed")
+                .register(meterRegistry);
+    }
+
+    /***
+     * Refreshes the snapshot in full when there is none yet, when the changes are not polled or when a full
+     * refresh is due, and merges the recent changes into it otherwise.
+     */
+    @Scheduled(initialDelayString = "${eonet.snapshot.initial-delay-ms:0}",
+            fixedDelayString = "${eonet.snapshot.refresh-interval-ms:300000}")
+    public void poll() {
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (!enabled || snapshot == null || pollsSinceFullRefresh >= fullRefreshEvery) {
+            fullRefreshes.increment();
+            refreshSnapshot(snapshot);
+            if (snapshotStore.getSnapshot() != snapshot) {
+                pollsSinceFullRefresh = 0;
+            }
+            return;
+        }
+
+        pollsSinceFullRefresh++;
+        deltaRefreshes.increment();
+        CompletableFuture<List<Event>> openEvents = apiConsumer.getEventsAsync(apiConsumer.getEventsUrl(EventStatus.open));
+        CompletableFuture<List<Event>> closedChanges = apiConsumer.getEventsAsync(apiConsumer.getEventsUrl(EventStatus.closed, days));
+        List<Event> changes;
+        try {
+            List<Event> open = openEvents.join();
+            List<Event> closed = closedChanges.join();
+            if (APIConsumer.hasMissingEvents(snapshot.getOpenEvents(), open, closed)) {
+                closed = apiConsumer.getEventsAsync(apiConsumer.getEventsUrl(EventStatus.closed)).join();
+            }
+            changes = new ArrayList<>(open);
+            changes.addAll(closed);
+        } catch (CompletionException e) {
+            LOG.error("Error fetching the event changes from EONET " + e.getCause().getMessage());
+            return;
+        }
+        merge(snapshot, changes);
+    }
+
+    private void refreshSnapshot(EventSnapshot snapshot) {
+        if (!archive.isSeeded()) {
+            apiConsumer.refreshSnapshot();
+            return;
+        }
+        if (snapshot == null) {
+            apiConsumer.refreshSnapshot(Collections.emptyList(), archive.getAllEvents(), archiveRecentDays);
+        } else {
+            apiConsumer.refreshSnapshot(snapshot.getOpenEvents(), snapshot.getClosedEvents(), archiveRecentDays);
+        }
+    }
+
+    /***
+     * Merges the changes into the events of the snapshot and publishes the result, the new events first, as
+     * EONET lists the most recent events first.
+     */
+    private void merge(EventSnapshot snapshot, List<Event> changes) {
+        Map<String, Event> knownEvents = new LinkedHashMap<>();
+        for (Event event : snapshot.getEvents(EventStatus.all)) {
+            knownEvents.put(event.getId(), event);
+        }
+        Map<String, Event> newEvents = new LinkedHashMap<>();
+        int added = 0;
+        int updated = 0;
+        int closed = 0;
+        for (Event change : changes) {
+            Event known = knownEvents.get(change.getId());
+            if (known == null) {
+                Event previous = newEvents.get(change.getId());
+                newEvents.put(change.getId(), previous == null ? change : merge(previous, change));
+                if (previous == null) {
+                    added++;
+                }
+                continue;
+            }
+
+            Event merged = merge(known, change);
+            if (merged == known) {
+                continue;
+            }
+            if (known.getClosed() == null && merged.getClosed() != null) {
+                closed++;
+            } else {
+                updated++;
+            }
+            knownEvents.put(merged.getId(), merged);
+        }
+
+        if (added + updated + closed == 0) {
+            LOG.info("No event changed since snapshot " + snapshot.getVersion() + ".");
+            return;
+        }
+        addedChanges.increment(added);
+        updatedChanges.increment(updated);
+        closedChanges.increment(closed);
+
+        List<Event> events = new ArrayList<>(newEvents.size() + knownEvents.size());
+        events.addAll(newEvents.values());
+        events.addAll(knownEvents.values());
+        if (columnarStore) {
+            compactMergedEvents(events);
+        }
+        List<Event> openEvents = new ArrayList<>();
+        List<Event> closedEvents = new ArrayList<>();
+        for (Event event : events) {
+            (event.getClosed() == null ? openEvents : closedEvents).add(event);
+        }
+
+        LOG.info("Merged " + added + " new, " + updated + " updated and " + closed + " closed events into snapshot "
+                + snapshot.getVersion() + ".");
+        snapshotStore.publish(openEvents, closedEvents, snapshot.getCategories());
+    }
+
+    /***
+     *
+     * @return the known event if the change does not change it, otherwise a new event with the fields of the change
+     * and the geometries of the known event followed by the new geometries of the change
+     */
+    private static Event merge(Event known, Event change) {
+        List<Geometry> knownGeometries = known.getGeometries();
+        List<Geometry> geometries = knownGeometries == null ? new ArrayList<>() : new ArrayList<>(knownGeometries);
+        boolean newGeometries = false;
+        if (change.getGeometries() != null) {
+            Set<Geometry> seen = new HashSet<>(geometries);
+            for (Geometry geometry : change.getGeometries()) {
+                if (seen.add(geometry)) {
+                    geometries.add(geometry);
+                    newGeometries = true;
+                }
+            }
+        }
+
+        if (!newGeometries
+                && Objects.equals(known.getClosed(), change.getClosed())
+                && Objects.equals(known.getTitle(), change.getTitle())
+                && Objects.equals(known.getDescription(), change.getDescription())
+                && Objects.equals(known.getLink(), change.getLink())
+                && Objects.equals(known.getCategories(), change.getCategories())
+                && Objects.equals(known.getSources(), change.getSources())) {
+            return known;
+        }
+
+        Event merged = new Event();
+        merged.setId(change.getId());
+        merged.setTitle(change.getTitle());
+        merged.setDescription(change.getDescription());
+        merged.setLink(change.getLink());
+        merged.setCategories(change.getCategories());
+        merged.setSources(change.getSources());
+        merged.setGeometries(knownGeometries == null && !newGeometries ? null : geometries);
+        merged.setClosed(change.getClosed());
+        return merged;
+    }
+
+    /***
+     * Compacts the merged events together, in place. The events left unchanged keep the columns they were
+     * compacted in, until the next full refresh compacts every event again.
+     */
+    private static void compactMergedEvents(List<Event> events) {
+        List<Integer> positions = new ArrayList<>();
+        List<Event> mergedEvents = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (!(events.get(i) instanceof CompactEvent)) {
+                positions.add(i);
+                mergedEvents.add(events.get(i));
+            }
+        }
+        List<Event> compactEvents = CompactEvent.compact(mergedEvents);
+        for (int i = 0; i < positions.size(); i++) {
+            events.set(positions.get(i), compactEvents.get(i));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.service.query.EventCursor;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Immutable, versioned copy of the EONET open events, closed events and categories.
+ * A snapshot is never changed after creation; a refresh builds a new one and swaps it in.
+ * The events are also kept in the paging order of {@link EventCursor}, sorted once per snapshot.
+ */
+@Getter
+public class EventSnapshot {
+    private final long version;
+    private final long createdAt;
+    private final List<Event> openEvents;
+    private final List<Event> closedEvents;
+    private final List<Category> categories;
+
+    @Getter(AccessLevel.NONE)
+    private final List<Event> sortedEvents;
+    @Getter(AccessLevel.NONE)
+    private final List<Event> sortedOpenEvents;
+    @Getter(AccessLevel.NONE)
+    private final List<Event> sortedClosedEvents;
+
+    public EventSnapshot(long version, long createdAt, List<Event> openEvents, List<Event> closedEvents, List<Category> categories) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.openEvents = Collections.unmodifiableList(new ArrayList<>(openEvents));
+        this.closedEvents = Collections.unmodifiableList(new ArrayList<>(closedEvents));
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+
+        List<Event> sorted = EventCursor.sort(getEvents(EventStatus.all));
+        List<Event> sortedOpen = new ArrayList<>(openEvents.size());
+        List<Event> sortedClosed = new ArrayList<>(closedEvents.size());
+        for (Event event : sorted) {
+            (event.getClosed() == null ? sortedOpen : sortedClosed).add(event);
+        }
+        this.sortedEvents = Collections.unmodifiableList(sorted);
+        this.sortedOpenEvents = Collections.unmodifiableList(sortedOpen);
+        this.sortedClosedEvents = Collections.unmodifiableList(sortedClosed);
+    }
+
+    /***
+     *
+     * @param status the status of the event: open, closed, all
+     * @return the events of this snapshot with the given status, open events first for status all
+     */
+    public List<Event> getEvents(EventStatus status) {
+        if (EventStatus.open.equals(status)) {
+            return openEvents;
+        }
+        if (EventStatus.closed.equals(status)) {
+            return closedEvents;
+        }
+
+        List<Event> events = new ArrayList<>(openEvents.size() + closedEvents.size());
+        events.addAll(openEvents);
+        events.addAll(closedEvents);
+        return events;
+    }
+
+    /***
+     *
+     * @param status the status of the event: open, closed, all
+     * @return the events of this snapshot with the given status, in paging order
+     */
+    public List<Event> getSortedEvents(EventStatus status) {
+        if (EventStatus.open.equals(status)) {
+            return sortedOpenEvents;
+        }
+        if (EventStatus.closed.equals(status)) {
+            return sortedClosedEvents;
+        }
+        return sortedEvents;
+    }
+
+    /***
+     *
+     * @return the number of milliseconds elapsed since this snapshot was taken
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - createdAt;
+    }
+}
@@ -0,0 +1,89 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Holds the resident EONET snapshot. Readers always see a complete snapshot, because a new one
+ * is published by a single atomic reference swap.
+ */
+@Component
+public class EventSnapshotStore {
+    private static final Logger LOG = LogManager.getLogger(EventSnapshotStore.class.getName());
+
+    private final AtomicReference<EventSnapshot> current = new AtomicReference<>();
+    private final List<SnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+    /***
+     *
+     * @return the snapshot currently served, or null if no snapshot was loaded yet
+     */
+    public EventSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    public boolean isLoaded() {
+        return current.get() != null;
+    }
+
+    /***
+     * Builds a new snapshot with the next version and swaps it in, then notifies the listeners.
+     *
+     * @return the published snapshot
+     */
+    public synchronized EventSnapshot publish(List<Event> openEvents, List<Event> closedEvents, List<Category> categories) {
+        EventSnapshot previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        EventSnapshot snapshot = new EventSnapshot(version, System.currentTimeMillis(), openEvents, closedEvents, categories);
+        current.set(snapshot);
+
+        LOG.info("Published snapshot " + version + " with " + openEvents.size() + " open events, "
+                + closedEvents.size() + " closed events and " + categories.size() + " categories.");
+
+        notifyListeners(previous, snapshot);
+        return snapshot;
+    }
+
+    /***
+     * Swaps in a snapshot restored from disk, keeping its version and creation time, then notifies the listeners.
+     * It is ignored if a snapshot was already published.
+     *
+     * @return whether the snapshot was swapped in
+     */
+    public synchronized boolean restore(EventSnapshot snapshot) {
+        if (!current.compareAndSet(null, snapshot)) {
+            return false;
+        }
+
+        LOG.info("Restored snapshot " + snapshot.getVersion() + " with " + snapshot.getOpenEvents().size()
+                + " open events, " + snapshot.getClosedEvents().size() + " closed events and "
+                + snapshot.getCategories().size() + " categories.");
+        notifyListeners(null, snapshot);
+        return true;
+    }
+
+    private void notifyListeners(EventSnapshot previous, EventSnapshot snapshot) {
+        for (SnapshotListener listener : listeners) {
+            try {
+                listener.onSnapshot(previous, snapshot);
+            } catch (RuntimeException e) {
+                LOG.error("Snapshot listener failed " + e.getMessage());
+            }
+        }
+    }
+
+    public void addListener(SnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SnapshotListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,244 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.model.exceptions.EONETException;
+import NASA.service.index.IntervalIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Counts of the events of the current snapshot per status, per category and per start day, with the average
+ * number of affected places. The counts are updated with the events a snapshot changed only: each event's
+ * contribution is kept, and is subtracted and added again when the event changes, so the events left as the same
+ * instance, as after a merged poll, cost an identity check. The responses are built once per snapshot, so serving
+ * them costs no aggregation at all.
+ */
+@Component
+public class EventStatistics implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(EventStatistics.class.getName());
+    private static final int OPEN = 0;
+    private static final int CLOSED = 1;
+    private static final int PLACES = 2;
+    private static final int COUNTS = 3;
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final Map<Integer, long[]> categoryCounts = new HashMap<>();
+    private final NavigableMap<Long, long[]> dayCounts = new TreeMap<>();
+    private final long[] statusCounts = new long[COUNTS];
+    private volatile Statistics statistics;
+
+    public EventStatistics(EventSnapshotStore snapshotStore) {
+        snapshotStore.addListener(this);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            onSnapshot(null, snapshot);
+        }
+    }
+
+    public boolean isLoaded() {
+        return statistics != null;
+    }
+
+    /***
+     *
+     * @return the open, closed and total counts of the events and their average number of affected places
+     */
+    public Map<String, Object> getSummary() {
+        return statistics.summary;
+    }
+
+    /***
+     *
+     * @return the open and closed counts and the average number of affected places of the events of every category
+     */
+    public List<Map<String, Object>> getCategories() {
+        return statistics.categories;
+    }
+
+    /***
+     *
+     * @param from the first day, or null for the 30 days up to the last day
+     * @param to the last day, or null for today (UTC)
+     * @return the open and closed counts of the events starting on each day of the [from, to] window that has any
+     * @throws EONETException if the window is reversed or longer than a year
+     */
+    public List<Map<String, Object>> getDays(LocalDate from, LocalDate to) {
+        if (to == null) {
+            to = LocalDate.now(ZoneOffset.UTC);
+        }
+        if (from == null) {
+            from = to.minusDays(DEFAULT_DAYS - 1);
+        }
+        if (from.isAfter(to) || to.toEpochDay() - from.toEpochDay() >= MAX_DAYS) {
+            throw new EONETException("The days must span from 1 to " + MAX_DAYS + " days.");
+        }
+        List<Map<String, Object>> days = new ArrayList<>();
+        for (Map.Entry<Long, long[]> day : statistics.days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).entrySet()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("date", LocalDate.ofEpochDay(day.getKey()).toString());
+            counts.put("open", day.getValue()[OPEN]);
+            counts.put("closed", day.getValue()[CLOSED]);
+            days.add(counts);
+        }
+        return days;
+    }
+
+    @Override
+    public synchronized void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        long start = System.nanoTime();
+        int changed = 0;
+        for (Event event : current.getEvents(EventStatus.all)) {
+            Contribution contribution = contributions.get(event.getId());
+            if (contribution != null && contribution.event == event) {
+                contribution.version = current.getVersion();
+                continue;
+            }
+            if (contribution != null) {
+                apply(contribution, -1);
+            }
+            contribution = new Contribution(event, current.getVersion());
+            contributions.put(event.getId(), contribution);
+            apply(contribution, 1);
+            changed++;
+        }
+        for (Iterator<Contribution> iterator = contributions.values().iterator(); iterator.hasNext(); ) {
+            Contribution contribution = iterator.next();
+            if (contribution.version != current.getVersion()) {
+                apply(contribution, -1);
+                iterator.remove();
+                changed++;
+            }
+        }
+
+        NavigableMap<Long, long[]> days = new TreeMap<>();
+        dayCounts.forEach((day, counts) -> days.put(day, counts.clone()));
+        statistics = new Statistics(getSummary(current), getCategories(current), days);
+        LOG.info("Updated the statistics with " + changed + " changed events of snapshot " + current.getVersion() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        add(statusCounts, contribution, sign);
+        for (int categoryId : contribution.categoryIds) {
+            long[] counts = categoryCounts.computeIfAbsent(categoryId, id -> new long[COUNTS]);
+            add(counts, contribution, sign);
+            if (counts[OPEN] + counts[CLOSED] == 0) {
+                categoryCounts.remove(categoryId);
+            }
+        }
+        if (contribution.startDay != null) {
+            long[] counts = dayCounts.computeIfAbsent(contribution.startDay, day -> new long[COUNTS]);
+            add(counts, contribution, sign);
+            if (counts[OPEN] + counts[CLOSED] == 0) {
+                dayCounts.remove(contribution.startDay);
+            }
+        }
+    }
+
+    private static void add(long[] counts, Contribution contribution, int sign) {
+        counts[contribution.closed ? CLOSED : OPEN] += sign;
+        counts[PLACES] += sign * contribution.places;
+    }
+
+    private Map<String, Object> getSummary(EventSnapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("version", snapshot.getVersion());
+        summary.put("open", statusCounts[OPEN]);
+        summary.put("closed", statusCounts[CLOSED]);
+        summary.put("total", statusCounts[OPEN] + statusCounts[CLOSED]);
+        summary.put("averageAffectedPlaces", getAverage(statusCounts));
+        return Collections.unmodifiableMap(summary);
+    }
+
+    /***
+     *
+     * @return the counts of the categories of the snapshot, in its order, followed by the other categories the
+     * events have
+     */
+    private List<Map<String, Object>> getCategories(EventSnapshot snapshot) {
+        Map<Integer, String> titles = new LinkedHashMap<>();
+        for (Category category : snapshot.getCategories()) {
+            titles.put(category.getId(), category.getTitle());
+        }
+        for (Integer categoryId : new TreeMap<>(categoryCounts).keySet()) {
+            titles.putIfAbsent(categoryId, null);
+        }
+
+        List<Map<String, Object>> categories = new ArrayList<>(titles.size());
+        for (Map.Entry<Integer, String> title : titles.entrySet()) {
+            long[] counts = categoryCounts.getOrDefault(title.getKey(), new long[COUNTS]);
+            Map<String, Object> category = new LinkedHashMap<>();
+            category.put("id", title.getKey());
+            category.put("title", title.getValue());
+            category.put("open", counts[OPEN]);
+            category.put("closed", counts[CLOSED]);
+            category.put("averageAffectedPlaces", getAverage(counts));
+            categories.add(Collections.unmodifiableMap(category));
+        }
+        return Collections.unmodifiableList(categories);
+    }
+
+    private static double getAverage(long[] counts) {
+        long events = counts[OPEN] + counts[CLOSED];
+        return events == 0 ? 0 : Math.round(counts[PLACES] * 100.0 / events) / 100.0;
+    }
+
+    /***
+     * What an event adds to the counts, kept to subtract it when the event changes or leaves the snapshot.
+     */
+    private static class Contribution {
+        private final Event event;
+        private final boolean closed;
+        private final int places;
+        private final int[] categoryIds;
+        private final Long startDay;
+        private long version;
+
+        private Contribution(Event event, long version) {
+            this.event = event;
+            this.closed = event.getClosed() != null;
+            this.places = event.getGeometries() == null ? 0 : event.getGeometries().size();
+            List<Category> categories = event.getCategories();
+            this.categoryIds = new int[categories == null ? 0 : categories.size()];
+            for (int i = 0; i < categoryIds.length; i++) {
+                categoryIds[i] = categories.get(i).getId();
+            }
+            long[] interval = IntervalIndex.getInterval(event);
+            this.startDay = interval == null ? null : Math.floorDiv(interval[0], TimeUnit.DAYS.toMillis(1));
+            this.version = version;
+        }
+    }
+
+    /***
+     * The responses of one snapshot.
+     */
+    private static class Statistics {
+        private final Map<String, Object> summary;
+        private final List<Map<String, Object>> categories;
+        private final NavigableMap<Long, long[]> days;
+
+        private Statistics(Map<String, Object> summary, List<Map<String, Object>> categories, NavigableMap<Long, long[]> days) {
+            this.summary = summary;
+            this.categories = categories;
+            this.days = days;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package NASA.service;
+
+import NASA.model.Event;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/***
+ * Shares one hot event stream between all the subscribers asking for the same filter. The shared stream starts
+ * with its first subscriber, replays its latest events to late subscribers and is torn down when its last
+ * subscriber leaves. Every subscriber reads it through its own bounded buffer, dropping its oldest events when
+ * it cannot keep up, so a slow client never holds back the others.
+ * The subscribers, shared streams, buffered, emitted and dropped events are published as eonet.stream.* metrics.
+ */
+@Component
+public class EventStreamRegistry {
+    private static final Logger LOG = LogManager.getLogger(EventStreamRegistry.class.getName());
+
+    private final ConcurrentMap<String, Flux<Event>> streams = new ConcurrentHashMap<>();
+    private final AtomicLong activeSubscribers = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong bufferedEvents = new AtomicLong();
+    private final Counter emittedEvents;
+
+    private final Duration period;
+    private final int replaySize;
+    private final int bufferSize;
+
+    public EventStreamRegistry(MeterRegistry meterRegistry,
+                               @Value("${eonet.stream.period-ms:500}") long periodMillis,
+                               @Value("${eonet.stream.replay-size:16}") int replaySize,
+                               @Value("${eonet.stream.buffer-size:256}") int bufferSize) {
+        this.period = Duration.ofMillis(periodMillis);
+        this.replaySize = replaySize;
+        this.bufferSize = bufferSize;
+
+        Gauge.builder("eonet.stream.subscribers", activeSubscribers, AtomicLong::get)
+                .description("Clients subscribed to an event stream")
+                .register(meterRegistry);
+        Gauge.builder("eonet.stream.shared", streams, Map::size)
+                .description("Shared event streams running, one per filter")
+                .register(meterRegistry);
+        Gauge.builder("eonet.stream.events.buffered", bufferedEvents, AtomicLong::get)
+                .description("Events waiting in the buffers of slow subscribers")
+                .register(meterRegistry);
+        FunctionCounter.builder("eonet.stream.events.dropped", droppedEvents, AtomicLong::get)
+                .description("Events dropped from the buffers of subscribers that could not keep up")
+                .register(meterRegistry);
+        this.emittedEvents = Counter.builder("eonet.stream.events.emitted")
+                .description("Events delivered to stream subscribers")
+                .register(meterRegistry);
+    }
+
+    /***
+     *
+     * @param key identifies the filter; subscribers with the same key share one stream
+     * @param eventsSupplier supplies the filtered events when the shared stream needs them
+     * @return the shared stream of the filter, behind a buffer owned by the subscriber
+     */
+    public Flux<Event> getStream(String key, Supplier<List<Event>> eventsSupplier) {
+        Flux<Event> sharedStream = streams.computeIfAbsent(key, streamKey -> createSharedStream(streamKey, eventsSupplier));
+        return Flux.defer(() -> {
+            AtomicLong buffered = new AtomicLong();
+            return sharedStream
+                    .doOnNext(event -> {
+                        buffered.incrementAndGet();
+                        bufferedEvents.incrementAndGet();
+                    })
+                    .onBackpressureBuffer(bufferSize, event -> {
+                        buffered.decrementAndGet();
+                        bufferedEvents.decrementAndGet();
+                        droppedEvents.incrementAndGet();
+                    }, BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnNext(event -> {
+                        buffered.decrementAndGet();
+                        bufferedEvents.decrementAndGet();
+                        emittedEvents.increment();
+                    })
+                    .doOnSubscribe(subscription -> activeSubscribers.incrementAndGet())
+                    .doFinally(signal -> {
+                        activeSubscribers.decrementAndGet();
+                        bufferedEvents.addAndGet(-buffered.getAndSet(0));
+                    });
+        });
+    }
+
+    public int getSharedStreams() {
+        return streams.size();
+    }
+
+    public long getActiveSubscribers() {
+        return activeSubscribers.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private Flux<Event> createSharedStream(String key, Supplier<List<Event>> eventsSupplier) {
+        AtomicReference<Flux<Event>> sharedStream = new AtomicReference<>();
+        Flux<Event> stream = new EventsGenerator(eventsSupplier, period).getEvents()
+                .doOnSubscribe(subscription -> LOG.info("Started the shared event stream " + key))
+                .doFinally(signal -> {
+                    streams.remove(key, sharedStream.get());
+                    LOG.info("Stopped the shared event stream " + key);
+                })
+                .replay(replaySize)
+                .refCount();
+        sharedStream.set(stream);
+        return stream;
+    }
+}
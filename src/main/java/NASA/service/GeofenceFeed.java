@@ -0,0 +1,154 @@
+package NASA.service;
+
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.EventStatus;
+import NASA.model.exceptions.EONETException;
+import NASA.service.index.Geofence;
+import NASA.service.index.GeofenceIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Streams to every client the events entering the regions it subscribed to: an event is sent, as an entered
+ * server-sent event, when a snapshot adds it or adds a geometry to it that matches one of the client's
+ * {@link Geofence}s. The geometries are matched against a {@link GeofenceIndex} of every subscribed geofence, so
+ * a new geometry costs the lookup of the geofences around it rather than a check of every client. As in the
+ * {@link EventChangeFeed}, a subscriber falling too far behind is completed, see {@link SseSubscriber}.
+ */
+@Component
+public class GeofenceFeed implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(GeofenceFeed.class.getName());
+    public static final String ENTERED_EVENT = "entered";
+
+    private final GeofenceIndex<Subscriber> index;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter matches;
+    private final int maxGeofences;
+    private final int maxPending;
+    private final Duration heartbeatPeriod;
+
+    /***
+     *
+     * @param cellSize the width and height in degrees of the cells of the geofence index
+     * @param maxCells the number of cells a geofence may overlap before it is checked for every geometry instead
+     * @param maxGeofences the number of geofences a client may subscribe to
+     * @param maxPending the number of events a subscriber may have waiting to be sent before it is completed
+     * @param heartbeatMillis the period of the comments sent between the events
+     */
+    public GeofenceFeed(EventSnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                        @Value("${eonet.stream.geofences.cell-size:2.0}") double cellSize,
+                        @Value("${eonet.stream.geofences.max-cells:256}") int maxCells,
+                        @Value("${eonet.stream.geofences.max-per-client:16}") int maxGeofences,
+                        @Value("${eonet.stream.geofences.max-pending:1024}") int maxPending,
+                        @Value("${eonet.stream.geofences.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.index = new GeofenceIndex<>(cellSize, maxCells);
+        this.maxGeofences = maxGeofences;
+        this.maxPending = maxPending;
+        this.heartbeatPeriod = Duration.ofMillis(heartbeatMillis);
+
+        this.matches = Counter.builder("eonet.stream.geofences.matches")
+                .description("Events sent to the clients whose geofences they entered")
+                .register(meterRegistry);
+        Gauge.builder("eonet.stream.geofences", index, GeofenceIndex::size)
+                .description("Geofences subscribed to by the clients")
+                .register(meterRegistry);
+        Gauge.builder("eonet.stream.geofences.subscribers", subscribers, AtomicInteger::get)
+                .description("Clients subscribed to the geofence stream")
+                .register(meterRegistry);
+
+        snapshotStore.addListener(this);
+    }
+
+    /***
+     *
+     * @return the events entering any of the geofences from now on
+     * @throws EONETException if there are no geofences or more than a client may subscribe to
+     */
+    public Flux<ServerSentEvent<Object>> getEvents(List<Geofence> geofences) {
+        if (geofences.isEmpty() || geofences.size() > maxGeofences) {
+            throw new EONETException("Between 1 and " + maxGeofences + " circles and polygons must be given.");
+        }
+        return SseSubscriber.stream(() -> new Subscriber(maxPending), subscriber -> subscribe(subscriber, geofences),
+                this::unsubscribe, heartbeatPeriod);
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        if (previous == null || index.size() == 0) {
+            return;
+        }
+        Map<String, Event> previousEvents = new HashMap<>();
+        for (Event event : previous.getEvents(EventStatus.all)) {
+            previousEvents.put(event.getId(), event);
+        }
+
+        int sent = 0;
+        for (Event event : current.getEvents(EventStatus.all)) {
+            Event previousEvent = previousEvents.get(event.getId());
+            if (previousEvent == event || event.getGeometries() == null) {
+                continue;
+            }
+            Set<Geometry> previousGeometries = previousEvent == null || previousEvent.getGeometries() == null
+                    ? Collections.emptySet() : new HashSet<>(previousEvent.getGeometries());
+            Set<Subscriber> owners = new HashSet<>();
+            for (Geometry geometry : event.getGeometries()) {
+                if (!previousGeometries.contains(geometry)) {
+                    index.collectOwners(geometry, owners);
+                }
+            }
+            if (owners.isEmpty()) {
+                continue;
+            }
+            List<ServerSentEvent<Object>> entered = Collections.singletonList(ServerSentEvent.builder((Object) event)
+                    .id(event.getId())
+                    .event(ENTERED_EVENT)
+                    .build());
+            for (Subscriber owner : owners) {
+                owner.offer(entered);
+            }
+            sent += owners.size();
+        }
+        matches.increment(sent);
+        if (sent > 0) {
+            LOG.info("Sent " + sent + " geofence events of snapshot " + current.getVersion() + ".");
+        }
+    }
+
+    private void subscribe(Subscriber subscriber, List<Geofence> geofences) {
+        for (Geofence geofence : geofences) {
+            subscriber.entries.add(index.add(geofence, subscriber));
+        }
+        subscribers.incrementAndGet();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.entries.forEach(index::remove);
+        subscribers.decrementAndGet();
+    }
+
+    private static class Subscriber extends SseSubscriber {
+        private final List<GeofenceIndex.Entry<Subscriber>> entries = new ArrayList<>();
+
+        private Subscriber(int maxPending) {
+            super("geofence", maxPending);
+        }
+    }
+}
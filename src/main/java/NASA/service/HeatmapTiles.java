@@ -0,0 +1,333 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.EventStatus;
+import NASA.model.exceptions.EONETException;
+import NASA.service.index.GeoUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Heatmap tiles of the geometries of the current snapshot: a Web Mercator tile z/x/y is split into a square grid of
+ * cells, and holds how many geometries lie in each cell, for all events or for the events of one category. A
+ * geometry counts at its point, or at the average of its vertices for a polygon. The cell counts of every zoom
+ * level are kept up to date with the events a snapshot changed only, as the {@link EventStatistics}, and every
+ * tile is serialized once and cached until a changed geometry falls into it, so a new snapshot rebuilds only the
+ * tiles it touched.
+ */
+@Component
+public class HeatmapTiles implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(HeatmapTiles.class.getName());
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final int ALL_CATEGORIES = -1;
+
+    private final ResponseCache responseCache;
+    private final int maxZoom;
+    private final int resolution;
+    private final int resolutionShift;
+    private final int cacheSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Object lock = new Object();
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final Map<Integer, Map<Long, int[]>> cellCounts = new HashMap<>();
+    private final Map<String, ResponseCache.SerializedResponse> tiles = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /***
+     *
+     * @param maxZoom the deepest zoom level served; every level keeps the counts of its non empty cells
+     * @param resolution the number of cells along each side of a tile, a power of two
+     * @param cacheSize the number of serialized tiles kept, after which the cache is emptied
+     */
+    public HeatmapTiles(ResponseCache responseCache, EventSnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                        @Value("${eonet.tiles.max-zoom:8}") int maxZoom,
+                        @Value("${eonet.tiles.resolution:32}") int resolution,
+                        @Value("${eonet.tiles.cache-size:4096}") int cacheSize) {
+        if (Integer.bitCount(resolution) != 1 || maxZoom < 0 || maxZoom + Integer.numberOfTrailingZeros(resolution) > 23) {
+            throw new IllegalArgumentException("The tile resolution must be a power of two, and the cells of the"
+                    + " deepest zoom level must fit in 23 bits");
+        }
+        this.responseCache = responseCache;
+        this.maxZoom = maxZoom;
+        this.resolution = resolution;
+        this.resolutionShift = Integer.numberOfTrailingZeros(resolution);
+        this.cacheSize = cacheSize;
+
+        this.hits = Counter.builder("eonet.tiles")
+                .description("Heatmap tiles served from the cache or built")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("eonet.tiles")
+                .description("Heatmap tiles served from the cache or built")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        meterRegistry.gauge("eonet.tiles.cache.size", tiles, Map::size);
+
+        snapshotStore.addListener(this);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            onSnapshot(null, snapshot);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /***
+     *
+     * @param categoryId the category of the counted events, or null for all events
+     * @return the serialized tile: its coordinates, its resolution, its total count and the [column, row, count]
+     * of its non empty cells, rows counted from the top
+     * @throws EONETException if the tile does not exist or the category is negative
+     */
+    public ResponseCache.SerializedResponse getTile(int z, int x, int y, Integer categoryId) {
+        if (z < 0 || z > maxZoom || x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            throw new EONETException("The tile must have a zoom level from 0 to " + maxZoom
+                    + " and coordinates from 0 to 2^zoom - 1.");
+        }
+        if (categoryId != null && categoryId < 0) {
+            throw new EONETException("Invalid category: " + categoryId);
+        }
+        int category = categoryId == null ? ALL_CATEGORIES : categoryId;
+        String key = getTileKey(z, x, y, category);
+        ResponseCache.SerializedResponse tile = tiles.get(key);
+        if (tile != null) {
+            hits.increment();
+            return tile;
+        }
+
+        misses.increment();
+        synchronized (lock) {
+            tile = responseCache.serialize(buildTile(z, x, y, category), null);
+            if (tiles.size() >= cacheSize) {
+                tiles.clear();
+            }
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        long start = System.nanoTime();
+        Set<String> touchedTiles = new HashSet<>();
+        synchronized (lock) {
+            for (Event event : current.getEvents(EventStatus.all)) {
+                Contribution contribution = contributions.get(event.getId());
+                if (contribution != null && contribution.event == event) {
+                    contribution.version = current.getVersion();
+                    continue;
+                }
+                Contribution updated = new Contribution(event, current.getVersion());
+                contributions.put(event.getId(), updated);
+                if (contribution == null || !Arrays.equals(contribution.categoryIds, updated.categoryIds)) {
+                    if (contribution != null) {
+                        apply(contribution.points, contribution.categoryIds, -1, touchedTiles);
+                    }
+                    apply(updated.points, updated.categoryIds, 1, touchedTiles);
+                } else {
+                    apply(subtract(contribution.points, updated.points), updated.categoryIds, -1, touchedTiles);
+                    apply(subtract(updated.points, contribution.points), updated.categoryIds, 1, touchedTiles);
+                }
+            }
+            for (Iterator<Contribution> iterator = contributions.values().iterator(); iterator.hasNext(); ) {
+                Contribution contribution = iterator.next();
+                if (contribution.version != current.getVersion()) {
+                    apply(contribution.points, contribution.categoryIds, -1, touchedTiles);
+                    iterator.remove();
+                }
+            }
+            tiles.keySet().removeAll(touchedTiles);
+            loaded = true;
+        }
+        LOG.info("Updated the heatmap tiles of snapshot " + current.getVersion() + ", " + touchedTiles.size()
+                + " tiles touched in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+    }
+
+    /***
+     * Must be called holding the lock.
+     */
+    private void apply(long[] points, int[] categoryIds, int sign, Set<String> touchedTiles) {
+        for (long point : points) {
+            int pixelX = (int) (point >>> 32);
+            int pixelY = (int) point;
+            for (int z = 0; z <= maxZoom; z++) {
+                int column = pixelX >> (maxZoom - z);
+                int row = pixelY >> (maxZoom - z);
+                int tileX = column >> resolutionShift;
+                int tileY = row >> resolutionShift;
+                add(ALL_CATEGORIES, getCellKey(z, column, row), sign);
+                touchedTiles.add(getTileKey(z, tileX, tileY, ALL_CATEGORIES));
+                for (int categoryId : categoryIds) {
+                    add(categoryId, getCellKey(z, column, row), sign);
+                    touchedTiles.add(getTileKey(z, tileX, tileY, categoryId));
+                }
+            }
+        }
+    }
+
+    /***
+     *
+     * @param points sorted points
+     * @param removed sorted points
+     * @return the points not in the removed points, counting duplicates
+     */
+    private static long[] subtract(long[] points, long[] removed) {
+        long[] remaining = new long[points.length];
+        int size = 0;
+        int j = 0;
+        for (long point : points) {
+            while (j < removed.length && removed[j] < point) {
+                j++;
+            }
+            if (j < removed.length && removed[j] == point) {
+                j++;
+            } else {
+                remaining[size++] = point;
+            }
+        }
+        return Arrays.copyOf(remaining, size);
+    }
+
+    private void add(int category, long cellKey, int sign) {
+        Map<Long, int[]> categoryCounts = cellCounts.computeIfAbsent(category, key -> new HashMap<>());
+        int[] count = categoryCounts.computeIfAbsent(cellKey, key -> new int[1]);
+        count[0] += sign;
+        if (count[0] == 0) {
+            categoryCounts.remove(cellKey);
+            if (categoryCounts.isEmpty()) {
+                cellCounts.remove(category);
+            }
+        }
+    }
+
+    /***
+     * Must be called holding the lock.
+     */
+    private Map<String, Object> buildTile(int z, int x, int y, int category) {
+        List<int[]> cells = new ArrayList<>();
+        long total = 0;
+        Map<Long, int[]> categoryCounts = cellCounts.getOrDefault(category, Collections.emptyMap());
+        for (int row = 0; row < resolution && !categoryCounts.isEmpty(); row++) {
+            for (int column = 0; column < resolution; column++) {
+                int[] count = categoryCounts.get(getCellKey(z, (x << resolutionShift) + column, (y << resolutionShift) + row));
+                if (count != null) {
+                    cells.add(new int[]{column, row, count[0]});
+                    total += count[0];
+                }
+            }
+        }
+        Map<String, Object> tile = new LinkedHashMap<>();
+        tile.put("z", z);
+        tile.put("x", x);
+        tile.put("y", y);
+        tile.put("category", category == ALL_CATEGORIES ? null : category);
+        tile.put("resolution", resolution);
+        tile.put("total", total);
+        tile.put("cells", cells);
+        return tile;
+    }
+
+    private static String getTileKey(int z, int x, int y, int category) {
+        return z + "/" + x + "/" + y + "/" + category;
+    }
+
+    /***
+     *
+     * @return the zoom level in the highest bits, then the column and the row of the cell in 23 bits each
+     */
+    private static long getCellKey(int z, int column, int row) {
+        return ((long) z << 46) | ((long) column << 23) | row;
+    }
+
+    /***
+     *
+     * @return the point of the geometry as the column in the high and the row in the low 32 bits of a cell of the
+     * deepest zoom level, or -1 if the geometry has no valid position
+     */
+    private long getPoint(Geometry geometry) {
+        double longitude;
+        double latitude;
+        if (geometry.getPolygon() != null && !geometry.getPolygon().isEmpty()) {
+            longitude = 0;
+            latitude = 0;
+            for (Coordinates vertex : geometry.getPolygon()) {
+                longitude += GeoUtils.longitudeOf(vertex);
+                latitude += GeoUtils.latitudeOf(vertex);
+            }
+            longitude /= geometry.getPolygon().size();
+            latitude /= geometry.getPolygon().size();
+        } else if (geometry.getCoordinates() != null) {
+            longitude = GeoUtils.longitudeOf(geometry.getCoordinates());
+            latitude = GeoUtils.latitudeOf(geometry.getCoordinates());
+        } else {
+            return -1;
+        }
+        if (Math.abs(longitude) > 180 || Math.abs(latitude) > 90) {
+            return -1;
+        }
+
+        int cells = 1 << (maxZoom + resolutionShift);
+        double clampedLatitude = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        double mercatorX = (longitude + 180) / 360;
+        double mercatorY = (1 - Math.log(Math.tan(clampedLatitude) + 1 / Math.cos(clampedLatitude)) / Math.PI) / 2;
+        long column = Math.max(0, Math.min(cells - 1, (int) (mercatorX * cells)));
+        long row = Math.max(0, Math.min(cells - 1, (int) (mercatorY * cells)));
+        return column << 32 | row;
+    }
+
+    /***
+     * The points and categories an event adds to the counts, kept to subtract them when the event changes or
+     * leaves the snapshot.
+     */
+    private class Contribution {
+        private final Event event;
+        private final long[] points;
+        private final int[] categoryIds;
+        private long version;
+
+        private Contribution(Event event, long version) {
+            this.event = event;
+            this.version = version;
+            List<Geometry> geometries = event.getGeometries();
+            long[] eventPoints = new long[geometries == null ? 0 : geometries.size()];
+            int size = 0;
+            for (int i = 0; i < eventPoints.length; i++) {
+                long point = getPoint(geometries.get(i));
+                if (point != -1) {
+                    eventPoints[size++] = point;
+                }
+            }
+            this.points = Arrays.copyOf(eventPoints, size);
+            Arrays.sort(points);
+            List<Category> categories = event.getCategories();
+            this.categoryIds = new int[categories == null ? 0 : categories.size()];
+            for (int i = 0; i < categoryIds.length; i++) {
+                categoryIds[i] = categories.get(i).getId();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.model.exceptions.EONETException;
+import NASA.service.query.EventPage;
+import NASA.service.query.EventQuery;
+import NASA.service.query.EventQueryPipeline;
+import NASA.service.query.EventQueryPlanner;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Non-blocking counterpart of {@link APIConsumer}, used by the reactive profile. Queries are answered from the
+ * snapshot in memory like in {@link APIConsumer}; before the first snapshot is loaded, EONET is called through a
+ * {@link WebClient}, so waiting for it holds no thread. Concurrent fetches of the same url share one call, and
+ * the responses are parsed off the event loop by the parser of the {@link APIConsumer}, so they share its
+ * categories and sources and are compacted the same way.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAPIConsumer {
+    private static final Logger LOG = LogManager.getLogger(ReactiveAPIConsumer.class.getName());
+
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final APIConsumer apiConsumer;
+    private final EventSnapshotStore snapshotStore;
+    private final EventQueryPipeline queryPipeline;
+    private final EventQueryPlanner queryPlanner = new EventQueryPlanner(APIConsumer.URL_BASE_EVENTS, APIConsumer.URL_BASE_CATEGORIES);
+    private final ConcurrentMap<String, Mono<?>> fetches = new ConcurrentHashMap<>();
+
+    public ReactiveAPIConsumer(WebClient eonetWebClient, MeterRegistry meterRegistry, APIConsumer apiConsumer,
+                               EventSnapshotStore snapshotStore, EventQueryPipeline queryPipeline) {
+        this.webClient = eonetWebClient;
+        this.meterRegistry = meterRegistry;
+        this.apiConsumer = apiConsumer;
+        this.snapshotStore = snapshotStore;
+        this.queryPipeline = queryPipeline;
+    }
+
+    /***
+     * Reactive {@link APIConsumer#getEventPage(EventQuery)}.
+     */
+    public Mono<EventPage> getEventPage(EventQuery query) {
+        if (snapshotStore.isLoaded()) {
+            return Mono.fromSupplier(() -> apiConsumer.getEventPage(query));
+        }
+
+        EventQueryPlanner.Plan plan = queryPlanner.plan(query);
+        return Flux.fromIterable(plan.getUrls())
+                .flatMapSequential(this::fetchEvents)
+                .collectList()
+                .map(eventLists -> {
+                    List<Event> events = new ArrayList<>();
+                    eventLists.forEach(events::addAll);
+                    return queryPipeline.page(events, plan.getLocalQuery());
+                });
+    }
+
+    /***
+     * Reactive {@link APIConsumer#getAllCategories()}.
+     */
+    public Mono<List<Category>> getAllCategories() {
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            return Mono.just(snapshot.getCategories());
+        }
+        return fetch(APIConsumer.URL_BASE_CATEGORIES, apiConsumer::parseCategories);
+    }
+
+    private Mono<List<Event>> fetchEvents(String url) {
+        return fetch(url, apiConsumer::parseEvents);
+    }
+
+    /***
+     * Fetches the url, or joins the fetch of the url already in flight. The upstream call is timed as
+     * eonet.upstream.requests and the size of its body recorded as eonet.upstream.response.size, with the same
+     * tags as the fetches of {@link APIConsumer}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> fetch(String url, BodyParser<T> parser) {
+        return (Mono<T>) fetches.computeIfAbsent(url, fetchUrl -> {
+            Tags tags = APIConsumer.getUpstreamTags(fetchUrl);
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return webClient.get()
+                        .uri(URI.create(fetchUrl))
+                        .exchange()
+                        .flatMap(response -> {
+                            String httpStatus = String.valueOf(response.rawStatusCode());
+                            if (response.statusCode().isError()) {
+                                recordRequest(tags, httpStatus, start);
+                                return response.createException().flatMap(Mono::error);
+                            }
+                            return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()))
+                                    .doOnNext(body -> recordResponse(tags, httpStatus, start, body));
+                        })
+                        .doOnError(e -> !(e instanceof WebClientResponseException), e -> recordRequest(tags, "IO_ERROR", start));
+            })
+                    .publishOn(Schedulers.parallel())
+                    .map(body -> parse(fetchUrl, body, parser))
+                    .doOnError(e -> LOG.error("Error fetching " + fetchUrl + " " + e.getMessage()))
+                    .doFinally(signal -> fetches.remove(fetchUrl))
+                    .cache();
+        });
+    }
+
+    private <T> T parse(String url, DataBuffer body, BodyParser<T> parser) {
+        try (InputStream inputStream = body.asInputStream(true)) {
+            return parser.parse(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new EONETException("Error parsing date from " + url + " " + e.getMessage());
+        }
+    }
+
+    private void recordResponse(Tags tags, String httpStatus, long start, DataBuffer body) {
+        recordRequest(tags, httpStatus, start);
+        DistributionSummary.builder("eonet.upstream.response.size")
+                .description("Decoded size of the EONET response bodies read")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(body.readableByteCount());
+    }
+
+    private void recordRequest(Tags tags, String httpStatus, long start) {
+        Timer.builder("eonet.upstream.requests")
+                .description("EONET fetches, from sending the request to reading the body")
+                .tags(tags)
+                .tag("http.status", httpStatus)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private interface BodyParser<T> {
+        T parse(InputStream body) throws IOException, ParseException;
+    }
+}
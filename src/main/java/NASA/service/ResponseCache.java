@@ -0,0 +1,169 @@
+package NASA.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/***
+ * Keeps the serialized JSON bytes of the responses served from the current snapshot, keyed by their normalized
+ * query, so answering a repeated query is a byte copy instead of a Jackson serialization. Bodies from a given
+ * size are also kept gzipped. The cache is dropped every time a snapshot is published, since the responses
+ * are only valid for the snapshot they were built from.
+ */
+@Component
+public class ResponseCache implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(ResponseCache.class.getName());
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final int gzipMinSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile Generation generation = new Generation(0, Collections.emptyMap());
+
+    /***
+     *
+     * @param maxEntries the number of responses kept for a snapshot, least recently used first out
+     * @param gzipMinSize the size in bytes from which a body is also kept gzipped, or a negative size to never gzip
+     */
+    public ResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry, EventSnapshotStore snapshotStore,
+                         @Value("${eonet.response-cache.max-entries:64}") int maxEntries,
+                         @Value("${eonet.response-cache.gzip-min-size:1024}") int gzipMinSize) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.gzipMinSize = gzipMinSize;
+
+        this.hits = Counter.builder("eonet.response.cache")
+                .description("Responses looked up in the serialized response cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("eonet.response.cache")
+                .description("Responses looked up in the serialized response cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        meterRegistry.gauge("eonet.response.cache.size", this, cache -> cache.generation.responses.size());
+
+        snapshotStore.addListener(this);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            onSnapshot(null, snapshot);
+        }
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        int dropped = generation.responses.size();
+        generation = new Generation(current.getVersion(), newResponses());
+        LOG.info("Dropped " + dropped + " cached responses for snapshot " + current.getVersion() + ".");
+    }
+
+    /***
+     *
+     * @param snapshot the snapshot the response is served from
+     * @param key the normalized query of the response
+     * @param loader builds the response on a miss, with {@link #serialize(Object, String)}
+     * @return the cached response, or the one built by the loader, which is cached if the snapshot is still current
+     */
+    public SerializedResponse get(EventSnapshot snapshot, String key, Supplier<SerializedResponse> loader) {
+        Generation currentGeneration = generation;
+        if (currentGeneration.version == snapshot.getVersion()) {
+            SerializedResponse response = currentGeneration.responses.get(key);
+            if (response != null) {
+                hits.increment();
+                return response;
+            }
+        }
+
+        misses.increment();
+        SerializedResponse response = loader.get();
+        if (currentGeneration.version == snapshot.getVersion()) {
+            currentGeneration.responses.put(key, response);
+        }
+        return response;
+    }
+
+    /***
+     *
+     * @param body the response body, serialized with the same mapper as the other responses
+     * @param nextCursor the cursor of the next page, or null if there is none
+     */
+    public SerializedResponse serialize(Object body, String nextCursor) {
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(body);
+            byte[] gzippedBytes = gzipMinSize >= 0 && bytes.length >= gzipMinSize ? gzip(bytes) : null;
+            return new SerializedResponse(bytes, gzippedBytes, DigestUtils.md5DigestAsHex(bytes), nextCursor);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+            gzipOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return gzipped.toByteArray();
+    }
+
+    private Map<String, SerializedResponse> newResponses() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, SerializedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SerializedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private static class Generation {
+        private final long version;
+        private final Map<String, SerializedResponse> responses;
+
+        private Generation(long version, Map<String, SerializedResponse> responses) {
+            this.version = version;
+            this.responses = responses;
+        }
+    }
+
+    /***
+     * The serialized body of a response, never modified once built.
+     */
+    @Getter
+    public static class SerializedResponse {
+        private final byte[] body;
+        /***
+         * The gzipped body, or null if the body is too small to be worth compressing.
+         */
+        private final byte[] gzippedBody;
+        /***
+         * The digest of the body, which every representation of the body derives its strong ETag from.
+         */
+        private final String digest;
+        private final String nextCursor;
+
+        private SerializedResponse(byte[] body, byte[] gzippedBody, String digest, String nextCursor) {
+            this.body = body;
+            this.gzippedBody = gzippedBody;
+            this.digest = digest;
+            this.nextCursor = nextCursor;
+        }
+    }
+}
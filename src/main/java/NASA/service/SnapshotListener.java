@@ -0,0 +1,13 @@
+package NASA.service;
+
+/***
+ * Callback invoked by the {@link EventSnapshotStore} every time a new snapshot is swapped in.
+ */
+public interface SnapshotListener {
+    /***
+     *
+     * @param previous the snapshot that was replaced, or null for the first snapshot
+     * @param current the snapshot that is now served
+     */
+    void onSnapshot(EventSnapshot previous, EventSnapshot current);
+}
@@ -0,0 +1,116 @@
+package NASA.service;
+
+import NASA.service.store.SnapshotFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Keeps the latest snapshot in a {@link SnapshotFile}, so a restarted instance serves the events it had as soon as
+ * it starts instead of waiting for EONET. The file is rewritten after every published snapshot on a background
+ * thread, skipping the snapshots replaced before their turn came. At startup the file is restored before the first
+ * refresh, which then reconciles it with EONET; a missing or corrupt file is ignored.
+ */
+@Component
+public class SnapshotPersistence implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(SnapshotPersistence.class.getName());
+
+    private final EventSnapshotStore snapshotStore;
+    private final Path file;
+    private final boolean columnarStore;
+    private final Timer readTimer;
+    private final Timer writeTimer;
+    private final AtomicReference<EventSnapshot> pendingSnapshot = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eonet-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /***
+     *
+     * @param file the path of the snapshot file, or an empty path to neither restore nor write snapshots
+     */
+    public SnapshotPersistence(EventSnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                               @Value("${eonet.snapshot.file:eonet-snapshot.bin}") String file,
+                               @Value("${eonet.store.columnar:true}") boolean columnarStore) {
+        this.snapshotStore = snapshotStore;
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.columnarStore = columnarStore;
+
+        this.readTimer = Timer.builder("eonet.snapshot.file")
+                .description("Reading and writing of the snapshot file")
+                .tag("operation", "read")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("eonet.snapshot.file")
+                .description("Reading and writing of the snapshot file")
+                .tag("operation", "write")
+                .register(meterRegistry);
+    }
+
+    /***
+     * Restores the snapshot file, if there is one, then listens for the snapshots to write.
+     */
+    @PostConstruct
+    public void restore() {
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            long start = System.nanoTime();
+            try {
+                EventSnapshot snapshot = SnapshotFile.read(file, columnarStore);
+                long duration = System.nanoTime() - start;
+                readTimer.record(duration, TimeUnit.NANOSECONDS);
+                if (snapshotStore.restore(snapshot)) {
+                    LOG.info("Restored snapshot " + snapshot.getVersion() + " from " + file + " in "
+                            + TimeUnit.NANOSECONDS.toMillis(duration) + " ms.");
+                }
+            } catch (IOException e) {
+                LOG.error("Error reading snapshot file " + file + " " + e.getMessage());
+            }
+        }
+        snapshotStore.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        if (pendingSnapshot.getAndSet(current) == null) {
+            writer.execute(this::writePendingSnapshot);
+        }
+    }
+
+    private void writePendingSnapshot() {
+        EventSnapshot snapshot = pendingSnapshot.getAndSet(null);
+        long start = System.nanoTime();
+        try {
+            long size = SnapshotFile.write(snapshot, file);
+            long duration = System.nanoTime() - start;
+            writeTimer.record(duration, TimeUnit.NANOSECONDS);
+            LOG.info("Wrote snapshot " + snapshot.getVersion() + " to " + file + ", " + size + " bytes in "
+                    + TimeUnit.NANOSECONDS.toMillis(duration) + " ms.");
+        } catch (IOException e) {
+            LOG.error("Error writing snapshot file " + file + " " + e.getMessage());
+        }
+    }
+}
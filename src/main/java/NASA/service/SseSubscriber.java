@@ -0,0 +1,104 @@
+package NASA.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/***
+ * Client of a server-sent event feed. The events sent to it are buffered until the client reads them, with a
+ * heartbeat comment whenever no event was sent for a period, so idle connections stay open through proxies and
+ * closed ones are noticed. The events waiting to be read are counted, and a subscriber falling too far behind is
+ * completed instead of buffering without limit.
+ */
+class SseSubscriber {
+    private static final Logger LOG = LogManager.getLogger(SseSubscriber.class.getName());
+    private static final ServerSentEvent<Object> HEARTBEAT = ServerSentEvent.builder().comment("heartbeat").build();
+
+    private final String feed;
+    private final int maxPending;
+    private final AtomicLong pending = new AtomicLong();
+    private FluxSink<ServerSentEvent<Object>> sink;
+
+    /***
+     *
+     * @param feed the name of the feed, to log the completed subscribers with
+     * @param maxPending the number of events the subscriber may have waiting to be read before it is completed
+     */
+    SseSubscriber(String feed, int maxPending) {
+        this.feed = feed;
+        this.maxPending = maxPending;
+    }
+
+    /***
+     *
+     * @param subscribers creates the subscriber of every subscription
+     * @param onSubscribe registers the subscriber with its feed, once it can be sent events
+     * @param onDispose unregisters the subscriber, once the stream is completed or cancelled
+     * @param heartbeatPeriod the period of the heartbeat comments
+     * @return the events sent to the subscriber of each subscription, with the heartbeats
+     */
+    static <S extends SseSubscriber> Flux<ServerSentEvent<Object>> stream(Supplier<S> subscribers, Consumer<S> onSubscribe,
+                                                                           Consumer<S> onDispose, Duration heartbeatPeriod) {
+        return Flux.defer(() -> {
+            S subscriber = subscribers.get();
+            SseSubscriber client = subscriber;
+            return Flux.<ServerSentEvent<Object>>create(sink -> {
+                client.sink = sink;
+                onSubscribe.accept(subscriber);
+                sink.onDispose(() -> onDispose.accept(subscriber));
+            }, FluxSink.OverflowStrategy.BUFFER)
+                    .publish(events -> Flux.merge(events, heartbeats(events, heartbeatPeriod)))
+                    .doOnNext(event -> {
+                        if (event != HEARTBEAT) {
+                            client.pending.decrementAndGet();
+                        }
+                    });
+        });
+    }
+
+    /***
+     *
+     * @return a heartbeat after each period without any of the events, from the subscription until the events
+     * complete; each event restarts the period
+     */
+    private static Flux<ServerSentEvent<Object>> heartbeats(Flux<ServerSentEvent<Object>> events, Duration period) {
+        return events.map(event -> 0L)
+                .startWith(0L)
+                .switchMap(event -> Flux.interval(period))
+                .map(tick -> HEARTBEAT)
+                .takeUntilOther(events.ignoreElements());
+    }
+
+    /***
+     * Sends the event whatever the number of events waiting, as for the first events of a subscription.
+     */
+    void send(ServerSentEvent<Object> event) {
+        pending.incrementAndGet();
+        sink.next(event);
+    }
+
+    /***
+     *
+     * @return whether the events were sent, or the subscriber was completed as it already has events waiting and
+     * these would leave it more than the maximum number of events behind; a subscriber that read every event is sent
+     * them however many they are
+     */
+    boolean offer(List<ServerSentEvent<Object>> events) {
+        long waiting = pending.get();
+        if (waiting > 0 && waiting + events.size() > maxPending) {
+            LOG.info("Completed a " + feed + " stream subscriber " + waiting + " events behind.");
+            sink.complete();
+            return false;
+        }
+        events.forEach(this::send);
+        return true;
+    }
+}
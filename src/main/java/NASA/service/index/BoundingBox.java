@@ -0,0 +1,85 @@
+package NASA.service.index;
+
+import NASA.model.exceptions.EONETException;
+import lombok.Getter;
+
+/***
+ * Longitude/latitude rectangle in degrees. A box whose minimum longitude is greater than its maximum
+ * longitude crosses the antimeridian.
+ */
+@Getter
+public class BoundingBox {
+    private final double minLongitude;
+    private final double minLatitude;
+    private final double maxLongitude;
+    private final double maxLatitude;
+
+    public BoundingBox(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        if (!Double.isFinite(minLongitude) || !Double.isFinite(minLatitude)
+                || !Double.isFinite(maxLongitude) || !Double.isFinite(maxLatitude)
+                || minLatitude > maxLatitude || minLatitude < -90 || maxLatitude > 90
+                || Math.abs(minLongitude) > 180 || Math.abs(maxLongitude) > 180) {
+            throw new EONETException("Invalid bounding box: " + minLongitude + "," + minLatitude + ","
+                    + maxLongitude + "," + maxLatitude);
+        }
+        this.minLongitude = minLongitude;
+        this.minLatitude = minLatitude;
+        this.maxLongitude = maxLongitude;
+        this.maxLatitude = maxLatitude;
+    }
+
+    /***
+     *
+     * @param bbox the box as minLongitude,minLatitude,maxLongitude,maxLatitude
+     * @return the parsed box
+     */
+    public static BoundingBox parse(String bbox) {
+        String[] values = bbox.split(",");
+        if (values.length != 4) {
+            throw new EONETException("The bounding box must be given as minLongitude,minLatitude,maxLongitude,maxLatitude.");
+        }
+
+        try {
+            return new BoundingBox(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+                    Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()));
+        } catch (NumberFormatException e) {
+            throw new EONETException("Invalid bounding box: " + bbox);
+        }
+    }
+
+    /***
+     *
+     * @return the smallest box containing all points within the given distance of the given point
+     */
+    public static BoundingBox around(double latitude, double longitude, double radiusKm) {
+        double angularRadius = radiusKm / GeoUtils.EARTH_RADIUS_KM;
+        double minLatitude = latitude - Math.toDegrees(angularRadius);
+        double maxLatitude = latitude + Math.toDegrees(angularRadius);
+        if (minLatitude <= -90 || maxLatitude >= 90 || angularRadius >= Math.PI / 2) {
+            return new BoundingBox(-180, Math.max(minLatitude, -90), 180, Math.min(maxLatitude, 90));
+        }
+
+        double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+        double minLongitude = longitude - deltaLongitude;
+        double maxLongitude = longitude + deltaLongitude;
+        if (maxLongitude - minLongitude >= 360) {
+            return new BoundingBox(-180, minLatitude, 180, maxLatitude);
+        }
+        return new BoundingBox(GeoUtils.normalizeLongitude(minLongitude), minLatitude,
+                GeoUtils.normalizeLongitude(maxLongitude), maxLatitude);
+    }
+
+    public boolean crossesAntimeridian() {
+        return minLongitude > maxLongitude;
+    }
+
+    public boolean intersects(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        if (maxLatitude < this.minLatitude || minLatitude > this.maxLatitude) {
+            return false;
+        }
+        if (crossesAntimeridian()) {
+            return maxLongitude >= this.minLongitude || minLongitude <= this.maxLongitude;
+        }
+        return maxLongitude >= this.minLongitude && minLongitude <= this.maxLongitude;
+    }
+}
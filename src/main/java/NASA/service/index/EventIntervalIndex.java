@@ -0,0 +1,56 @@
+package NASA.service.index;
+
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.service.EventSnapshot;
+import NASA.service.EventSnapshotStore;
+import NASA.service.SnapshotListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/***
+ * Keeps an {@link IntervalIndex} over all the events of the current snapshot, rebuilt every time a snapshot
+ * is published, so arbitrary time windows are answered locally instead of with a days query to EONET.
+ */
+@Component
+public class EventIntervalIndex implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(EventIntervalIndex.class.getName());
+
+    private volatile IntervalIndex index;
+
+    public EventIntervalIndex(EventSnapshotStore snapshotStore) {
+        snapshotStore.addListener(this);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            onSnapshot(null, snapshot);
+        }
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        long start = System.currentTimeMillis();
+        IntervalIndex intervalIndex = new IntervalIndex(current.getEvents(EventStatus.all));
+        this.index = intervalIndex;
+        LOG.info("Indexed the time span of " + intervalIndex.size() + " events of snapshot " + current.getVersion()
+                + " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    /***
+     *
+     * @param from the start of the window in milliseconds since the epoch, inclusive
+     * @param to the end of the window in milliseconds since the epoch, inclusive
+     * @return the events of the current snapshot whose time span overlaps the window, or null if no snapshot
+     * was indexed yet
+     */
+    public List<Event> getEventsOverlapping(long from, long to) {
+        IntervalIndex intervalIndex = index;
+        return intervalIndex == null ? null : intervalIndex.getEventsOverlapping(from, to);
+    }
+}
@@ -0,0 +1,77 @@
+package NASA.service.index;
+
+import NASA.model.Event;
+import NASA.model.enums.EventStatus;
+import NASA.service.EventSnapshot;
+import NASA.service.EventSnapshotStore;
+import NASA.service.SnapshotListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Keeps a {@link SpatialIndex} over all the events of the current snapshot, rebuilt every time a snapshot
+ * is published, and answers region queries from it without calling EONET. The events found are candidates
+ * for an {@link NASA.service.query.EventQuery}, which applies the other filters.
+ */
+@Component
+public class EventSpatialIndex implements SnapshotListener {
+    private static final Logger LOG = LogManager.getLogger(EventSpatialIndex.class.getName());
+
+    private final double cellSize;
+    private volatile SpatialIndex index;
+
+    public EventSpatialIndex(EventSnapshotStore snapshotStore, @Value("${eonet.index.spatial.cell-size:1.0}") double cellSize) {
+        this.cellSize = cellSize;
+        snapshotStore.addListener(this);
+        EventSnapshot snapshot = snapshotStore.getSnapshot();
+        if (snapshot != null) {
+            onSnapshot(null, snapshot);
+        }
+    }
+
+    @Override
+    public void onSnapshot(EventSnapshot previous, EventSnapshot current) {
+        long start = System.currentTimeMillis();
+        SpatialIndex spatialIndex = new SpatialIndex(current.getEvents(EventStatus.all), cellSize);
+        this.index = spatialIndex;
+        LOG.info("Indexed " + spatialIndex.size() + " geometries of snapshot " + current.getVersion()
+                + " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    /***
+     *
+     * @param box the region, as a longitude/latitude rectangle
+     * @return the events that have at least one geometry in the region
+     */
+    public List<Event> getEventsWithin(BoundingBox box) {
+        SpatialIndex spatialIndex = index;
+        if (spatialIndex == null) {
+            return new ArrayList<>();
+        }
+        return spatialIndex.getEventsWithin(box);
+    }
+
+    /***
+     *
+     * @param latitude the latitude of the center, in degrees
+     * @param longitude the longitude of the center, in degrees
+     * @param radiusKm the radius around the center, in kilometers
+     * @return the events that have at least one geometry within the radius
+     */
+    public List<Event> getEventsNear(double latitude, double longitude, double radiusKm) {
+        SpatialIndex spatialIndex = index;
+        if (spatialIndex == null) {
+            return new ArrayList<>();
+        }
+        return spatialIndex.getEventsNear(latitude, longitude, radiusKm);
+    }
+}
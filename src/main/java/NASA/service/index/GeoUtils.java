@@ -0,0 +1,57 @@
+package NASA.service.index;
+
+import NASA.model.Coordinates;
+
+/***
+ * Geographic helpers for the indexes. EONET coordinates follow GeoJSON, so a position is [longitude, latitude]
+ * and the parsers store it in {@link Coordinates} in that order: getLatitude holds the longitude and getLongitude
+ * holds the latitude. These helpers are the only place that mapping is spelled out.
+ */
+public final class GeoUtils {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GeoUtils() {
+    }
+
+    public static double longitudeOf(Coordinates coordinates) {
+        return coordinates.getLatitude();
+    }
+
+    public static double latitudeOf(Coordinates coordinates) {
+        return coordinates.getLongitude();
+    }
+
+    public static double normalizeLongitude(double longitude) {
+        double normalized = ((longitude + 180) % 360 + 360) % 360 - 180;
+        return normalized == -180 && longitude > 0 ? 180 : normalized;
+    }
+
+    /***
+     *
+     * @return the great circle distance between the two points in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /***
+     *
+     * @return the great circle distance in kilometers between the point and the closest point of the rectangle
+     */
+    public static double distanceToBoxKm(double latitude, double longitude, double minLongitude, double minLatitude,
+                                         double maxLongitude, double maxLatitude) {
+        double closestLatitude = Math.max(minLatitude, Math.min(maxLatitude, latitude));
+        double closestLongitude = longitude;
+        if (longitude < minLongitude || longitude > maxLongitude) {
+            double toMin = Math.abs(normalizeLongitude(longitude - minLongitude));
+            double toMax = Math.abs(normalizeLongitude(longitude - maxLongitude));
+            closestLongitude = toMin <= toMax ? minLongitude : maxLongitude;
+        }
+        return distanceKm(latitude, longitude, closestLatitude, closestLongitude);
+    }
+}
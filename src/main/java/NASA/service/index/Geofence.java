@@ -0,0 +1,205 @@
+package NASA.service.index;
+
+import NASA.model.Coordinates;
+import NASA.model.Geometry;
+import NASA.model.exceptions.EONETException;
+
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Region a client subscribes to: a circle around a point, or a polygon whose edges do not cross the antimeridian.
+ * A geometry matches the region if one of its positions lies in it, or, for a polygon geometry, if the geometry
+ * contains the center or the first vertex of the region.
+ */
+public abstract class Geofence {
+    private final BoundingBox envelope;
+
+    private Geofence(BoundingBox envelope) {
+        this.envelope = envelope;
+    }
+
+    /***
+     *
+     * @return the smallest box containing the region
+     */
+    public BoundingBox getEnvelope() {
+        return envelope;
+    }
+
+    public boolean matches(Geometry geometry) {
+        List<Coordinates> positions = getPositions(geometry);
+        if (positions == null) {
+            return false;
+        }
+        for (Coordinates position : positions) {
+            if (contains(GeoUtils.latitudeOf(position), GeoUtils.longitudeOf(position))) {
+                return true;
+            }
+        }
+        return geometry.getPolygon() != null && containsPoint(geometry.getPolygon(), getAnchorLatitude(), getAnchorLongitude());
+    }
+
+    protected abstract boolean contains(double latitude, double longitude);
+
+    protected abstract double getAnchorLatitude();
+
+    protected abstract double getAnchorLongitude();
+
+    private static List<Coordinates> getPositions(Geometry geometry) {
+        if (geometry.getPolygon() != null) {
+            return geometry.getPolygon().isEmpty() ? null : geometry.getPolygon();
+        }
+        return geometry.getCoordinates() == null ? null : Collections.singletonList(geometry.getCoordinates());
+    }
+
+    /***
+     *
+     * @return the circle of the given radius around the point
+     */
+    public static Geofence circle(double latitude, double longitude, double radiusKm) {
+        if (!Double.isFinite(latitude) || !Double.isFinite(longitude) || !Double.isFinite(radiusKm)
+                || Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || radiusKm < 0) {
+            throw new EONETException("Invalid circle: " + latitude + "," + longitude + "," + radiusKm);
+        }
+        return new Circle(latitude, longitude, radiusKm);
+    }
+
+    /***
+     *
+     * @param circle the circle as latitude,longitude,radiusKm, in the order of the parameters of /events/near
+     * @return the parsed circle
+     */
+    public static Geofence parseCircle(String circle) {
+        String[] values = circle.split(",");
+        if (values.length != 3) {
+            throw new EONETException("A circle must be given as latitude,longitude,radiusKm.");
+        }
+        try {
+            return circle(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+                    Double.parseDouble(values[2].trim()));
+        } catch (NumberFormatException e) {
+            throw new EONETException("Invalid circle: " + circle);
+        }
+    }
+
+    /***
+     *
+     * @param polygon the vertices as longitude,latitude pairs, in the order of a bounding box; the ring is closed
+     *                implicitly
+     * @return the parsed polygon
+     */
+    public static Geofence parsePolygon(String polygon) {
+        String[] values = polygon.split(",");
+        if (values.length < 6 || values.length % 2 != 0) {
+            throw new EONETException("A polygon must be given as at least three longitude,latitude pairs.");
+        }
+        double[] longitudes = new double[values.length / 2];
+        double[] latitudes = new double[values.length / 2];
+        try {
+            for (int i = 0; i < longitudes.length; i++) {
+                longitudes[i] = Double.parseDouble(values[2 * i].trim());
+                latitudes[i] = Double.parseDouble(values[2 * i + 1].trim());
+                if (!Double.isFinite(longitudes[i]) || !Double.isFinite(latitudes[i])) {
+                    throw new EONETException("Invalid polygon: " + polygon);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new EONETException("Invalid polygon: " + polygon);
+        }
+
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < longitudes.length; i++) {
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+        }
+        return new Polygon(new BoundingBox(minLongitude, minLatitude, maxLongitude, maxLatitude), longitudes, latitudes);
+    }
+
+    /***
+     * Even-odd ray casting test of a point against a ring of coordinates.
+     */
+    private static boolean containsPoint(List<Coordinates> ring, double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+            double longitudeI = GeoUtils.longitudeOf(ring.get(i));
+            double latitudeI = GeoUtils.latitudeOf(ring.get(i));
+            double longitudeJ = GeoUtils.longitudeOf(ring.get(j));
+            double latitudeJ = GeoUtils.latitudeOf(ring.get(j));
+            if ((latitudeI > latitude) != (latitudeJ > latitude)
+                    && longitude < (longitudeJ - longitudeI) * (latitude - latitudeI) / (latitudeJ - latitudeI) + longitudeI) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static final class Circle extends Geofence {
+        private final double latitude;
+        private final double longitude;
+        private final double radiusKm;
+
+        private Circle(double latitude, double longitude, double radiusKm) {
+            super(BoundingBox.around(latitude, longitude, radiusKm));
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusKm = radiusKm;
+        }
+
+        @Override
+        protected boolean contains(double latitude, double longitude) {
+            return GeoUtils.distanceKm(this.latitude, this.longitude, latitude, longitude) <= radiusKm;
+        }
+
+        @Override
+        protected double getAnchorLatitude() {
+            return latitude;
+        }
+
+        @Override
+        protected double getAnchorLongitude() {
+            return longitude;
+        }
+    }
+
+    private static final class Polygon extends Geofence {
+        private final double[] longitudes;
+        private final double[] latitudes;
+
+        private Polygon(BoundingBox envelope, double[] longitudes, double[] latitudes) {
+            super(envelope);
+            this.longitudes = longitudes;
+            this.latitudes = latitudes;
+        }
+
+        @Override
+        protected boolean contains(double latitude, double longitude) {
+            if (!getEnvelope().intersects(longitude, latitude, longitude, latitude)) {
+                return false;
+            }
+            boolean inside = false;
+            for (int i = 0, j = longitudes.length - 1; i < longitudes.length; j = i++) {
+                if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                        && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        @Override
+        protected double getAnchorLatitude() {
+            return latitudes[0];
+        }
+
+        @Override
+        protected double getAnchorLongitude() {
+            return longitudes[0];
+        }
+    }
+}
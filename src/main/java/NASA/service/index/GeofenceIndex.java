@@ -0,0 +1,186 @@
+package NASA.service.index;
+
+import NASA.model.Coordinates;
+import NASA.model.Geometry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Grid index over the geofences of the subscribed clients, the inverse of the {@link SpatialIndex}: the regions
+ * are indexed and the geometries are looked up. A geofence is stored in every cell its envelope overlaps, so
+ * matching a geometry reads only the geofences of the few cells around it, however many geofences there are.
+ * Unlike the {@link SpatialIndex}, it is updated in place as clients subscribe and leave. A geofence overlapping
+ * more cells than a limit is kept apart in a list checked for every geometry instead, so a world-sized region costs
+ * one entry rather than one per cell.
+ *
+ * @param <T> the owner of a geofence, returned when one of its geofences matches
+ */
+public class GeofenceIndex<T> {
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int maxCells;
+    private final Map<Integer, Set<Entry<T>>> cells = new ConcurrentHashMap<>();
+    private final Set<Entry<T>> largeEntries = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /***
+     *
+     * @param cellSize the width and height of a grid cell in degrees
+     * @param maxCells the number of cells a geofence may overlap before it is kept in the list of large geofences
+     */
+    public GeofenceIndex(double cellSize, int maxCells) {
+        this.cellSize = cellSize;
+        this.maxCells = maxCells;
+        this.columns = (int) Math.ceil(360 / cellSize);
+        this.rows = (int) Math.ceil(180 / cellSize);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /***
+     *
+     * @return the entry to remove the geofence with
+     */
+    public Entry<T> add(Geofence geofence, T owner) {
+        Entry<T> entry = new Entry<>(geofence, owner, countCells(geofence.getEnvelope()) > maxCells);
+        if (entry.large) {
+            largeEntries.add(entry);
+            size.incrementAndGet();
+            return entry;
+        }
+        forEachCell(geofence.getEnvelope(), cell -> cells.compute(cell, (key, entries) -> {
+            Set<Entry<T>> cellEntries = entries == null ? ConcurrentHashMap.newKeySet() : entries;
+            cellEntries.add(entry);
+            return cellEntries;
+        }));
+        size.incrementAndGet();
+        return entry;
+    }
+
+    public void remove(Entry<T> entry) {
+        if (entry.large) {
+            largeEntries.remove(entry);
+            size.decrementAndGet();
+            return;
+        }
+        forEachCell(entry.geofence.getEnvelope(), cell -> cells.computeIfPresent(cell, (key, entries) -> {
+            entries.remove(entry);
+            return entries.isEmpty() ? null : entries;
+        }));
+        size.decrementAndGet();
+    }
+
+    /***
+     * Adds the owners of the geofences matching the geometry to the given set.
+     */
+    public void collectOwners(Geometry geometry, Set<T> owners) {
+        List<Coordinates> positions = geometry.getPolygon() != null ? geometry.getPolygon() : null;
+        double minLongitude;
+        double minLatitude;
+        double maxLongitude;
+        double maxLatitude;
+        if (positions != null && !positions.isEmpty()) {
+            minLongitude = Double.POSITIVE_INFINITY;
+            minLatitude = Double.POSITIVE_INFINITY;
+            maxLongitude = Double.NEGATIVE_INFINITY;
+            maxLatitude = Double.NEGATIVE_INFINITY;
+            for (Coordinates position : positions) {
+                minLongitude = Math.min(minLongitude, GeoUtils.longitudeOf(position));
+                maxLongitude = Math.max(maxLongitude, GeoUtils.longitudeOf(position));
+                minLatitude = Math.min(minLatitude, GeoUtils.latitudeOf(position));
+                maxLatitude = Math.max(maxLatitude, GeoUtils.latitudeOf(position));
+            }
+        } else if (geometry.getCoordinates() != null) {
+            minLongitude = maxLongitude = GeoUtils.longitudeOf(geometry.getCoordinates());
+            minLatitude = maxLatitude = GeoUtils.latitudeOf(geometry.getCoordinates());
+        } else {
+            return;
+        }
+        if (!(Math.abs(minLatitude) <= 90 && Math.abs(maxLatitude) <= 90 && Math.abs(minLongitude) <= 180 && Math.abs(maxLongitude) <= 180)) {
+            return;
+        }
+
+        BoundingBox envelope = new BoundingBox(minLongitude, minLatitude, maxLongitude, maxLatitude);
+        Set<Entry<T>> checked = new HashSet<>();
+        forEachCell(envelope, cell -> {
+            Set<Entry<T>> entries = cells.get(cell);
+            if (entries != null) {
+                collectOwners(entries, geometry, envelope, checked, owners);
+            }
+        });
+        collectOwners(largeEntries, geometry, envelope, checked, owners);
+    }
+
+    private void collectOwners(Set<Entry<T>> entries, Geometry geometry, BoundingBox envelope, Set<Entry<T>> checked, Set<T> owners) {
+        for (Entry<T> entry : entries) {
+            if (!owners.contains(entry.owner) && checked.add(entry)
+                    && entry.geofence.getEnvelope().intersects(envelope.getMinLongitude(), envelope.getMinLatitude(),
+                    envelope.getMaxLongitude(), envelope.getMaxLatitude())
+                    && entry.geofence.matches(geometry)) {
+                owners.add(entry.owner);
+            }
+        }
+    }
+
+    private int countCells(BoundingBox box) {
+        int[] count = new int[1];
+        forEachCell(box, cell -> count[0]++);
+        return count[0];
+    }
+
+    private void forEachCell(BoundingBox box, CellConsumer consumer) {
+        if (box.crossesAntimeridian()) {
+            forEachCell(box, box.getMinLongitude(), 180, consumer);
+            forEachCell(box, -180, box.getMaxLongitude(), consumer);
+        } else {
+            forEachCell(box, box.getMinLongitude(), box.getMaxLongitude(), consumer);
+        }
+    }
+
+    private void forEachCell(BoundingBox box, double minLongitude, double maxLongitude, CellConsumer consumer) {
+        int minColumn = column(minLongitude);
+        int maxColumn = column(maxLongitude);
+        int minRow = row(box.getMinLatitude());
+        int maxRow = row(box.getMaxLatitude());
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+
+    private int column(double longitude) {
+        return Math.max(0, Math.min(columns - 1, (int) ((longitude + 180) / cellSize)));
+    }
+
+    private int row(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) ((latitude + 90) / cellSize)));
+    }
+
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+
+    /***
+     * A geofence in the index, compared by identity.
+     */
+    public static final class Entry<T> {
+        private final Geofence geofence;
+        private final T owner;
+        private final boolean large;
+
+        private Entry(Geofence geofence, T owner, boolean large) {
+            this.geofence = geofence;
+            this.owner = owner;
+            this.large = large;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package NASA.service.index;
+
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.service.store.CompactEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/***
+ * Immutable interval tree over the time span of a list of events. The span of an event starts at its first
+ * geometry date and ends at its last geometry date or at its closed date, whichever is later.
+ * The intervals are sorted by start and the tree is implicit: the root of the range [low, high] is its middle,
+ * and maxEnds holds the greatest end of the subtree rooted there, so overlap queries take O(log n + k).
+ */
+public class IntervalIndex {
+    private final List<Event> events;
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] eventIndexes;
+    private final long[] maxEnds;
+
+    public IntervalIndex(List<Event> events) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+
+        List<long[]> intervals = new ArrayList<>();
+        for (int eventIndex = 0; eventIndex < this.events.size(); eventIndex++) {
+            long[] interval = getInterval(this.events.get(eventIndex));
+            if (interval != null) {
+                intervals.add(new long[]{interval[0], interval[1], eventIndex});
+            }
+        }
+        intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+
+        this.starts = new long[intervals.size()];
+        this.ends = new long[intervals.size()];
+        this.eventIndexes = new int[intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            starts[i] = intervals.get(i)[0];
+            ends[i] = intervals.get(i)[1];
+            eventIndexes[i] = (int) intervals.get(i)[2];
+        }
+
+        this.maxEnds = new long[intervals.size()];
+        Arrays.fill(maxEnds, Long.MIN_VALUE);
+        buildMaxEnds(0, intervals.size() - 1);
+    }
+
+    /***
+     *
+     * @return the [start, end] span of the event in milliseconds since the epoch, or null if it has no dates
+     */
+    public static long[] getInterval(Event event) {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        if (event instanceof CompactEvent) {
+            start = ((CompactEvent) event).earliestTimestamp();
+            end = ((CompactEvent) event).latestTimestamp();
+        } else if (event.getGeometries() != null) {
+            for (Geometry geometry : event.getGeometries()) {
+                if (geometry.hasTimestamp()) {
+                    start = Math.min(start, geometry.getTimestamp());
+                    end = Math.max(end, geometry.getTimestamp());
+                }
+            }
+        }
+        if (event.getClosed() != null) {
+            start = Math.min(start, event.getClosed().getTime());
+            end = Math.max(end, event.getClosed().getTime());
+        }
+        return start <= end ? new long[]{start, end} : null;
+    }
+
+    /***
+     * Linear equivalent of {@link #getEventsOverlapping(long, long)} for event lists that are not indexed.
+     */
+    public static boolean overlaps(Event event, long from, long to) {
+        long[] interval = getInterval(event);
+        return interval != null && interval[0] <= to && interval[1] >= from;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /***
+     *
+     * @param from the start of the window in milliseconds since the epoch, inclusive
+     * @param to the end of the window in milliseconds since the epoch, inclusive
+     * @return the events whose span overlaps the window, in the order of the indexed list
+     */
+    public List<Event> getEventsOverlapping(long from, long to) {
+        BitSet matches = new BitSet(events.size());
+        collect(0, starts.length - 1, from, to, matches);
+
+        List<Event> matchingEvents = new ArrayList<>(matches.cardinality());
+        for (int eventIndex = matches.nextSetBit(0); eventIndex >= 0; eventIndex = matches.nextSetBit(eventIndex + 1)) {
+            matchingEvents.add(events.get(eventIndex));
+        }
+        return matchingEvents;
+    }
+
+    private long buildMaxEnds(int low, int high) {
+        if (low > high) {
+            return Long.MIN_VALUE;
+        }
+        int middle = (low + high) >>> 1;
+        long maxEnd = Math.max(ends[middle], Math.max(buildMaxEnds(low, middle - 1), buildMaxEnds(middle + 1, high)));
+        maxEnds[middle] = maxEnd;
+        return maxEnd;
+    }
+
+    private void collect(int low, int high, long from, long to, BitSet matches) {
+        if (low > high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        if (maxEnds[middle] < from) {
+            return;
+        }
+
+        collect(low, middle - 1, from, to, matches);
+        if (starts[middle] > to) {
+            return;
+        }
+        if (ends[middle] >= from) {
+            matches.set(eventIndexes[middle]);
+        }
+        collect(middle + 1, high, from, to, matches);
+    }
+}
@@ -0,0 +1,227 @@
+package NASA.service.index;
+
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Immutable grid index over the geometries of a list of events. Points are stored in the cell containing them,
+ * polygons by their bounding envelope in every cell the envelope overlaps. The cells are kept in a compressed
+ * layout: the entries of cell c are entries[cellStarts[c]] to entries[cellStarts[c + 1] - 1].
+ */
+public class SpatialIndex {
+    private final List<Event> events;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    private final int[] cellStarts;
+    private final int[] entries;
+
+    private final int[] entryEvents;
+    private final double[] entryMinLongitudes;
+    private final double[] entryMinLatitudes;
+    private final double[] entryMaxLongitudes;
+    private final double[] entryMaxLatitudes;
+
+    /***
+     *
+     * @param events the indexed events, referenced by position in the query results
+     * @param cellSize the width and height of a grid cell in degrees
+     */
+    public SpatialIndex(List<Event> events, double cellSize) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        this.cellSize = cellSize;
+        this.columns = (int) Math.ceil(360 / cellSize);
+        this.rows = (int) Math.ceil(180 / cellSize);
+
+        EnvelopeBuffer envelopes = new EnvelopeBuffer();
+        for (int eventIndex = 0; eventIndex < this.events.size(); eventIndex++) {
+            List<Geometry> geometries = this.events.get(eventIndex).getGeometries();
+            if (geometries == null) {
+                continue;
+            }
+            for (Geometry geometry : geometries) {
+                envelopes.add(eventIndex, geometry);
+            }
+        }
+
+        this.entryEvents = Arrays.copyOf(envelopes.events, envelopes.size);
+        this.entryMinLongitudes = Arrays.copyOf(envelopes.minLongitudes, envelopes.size);
+        this.entryMinLatitudes = Arrays.copyOf(envelopes.minLatitudes, envelopes.size);
+        this.entryMaxLongitudes = Arrays.copyOf(envelopes.maxLongitudes, envelopes.size);
+        this.entryMaxLatitudes = Arrays.copyOf(envelopes.maxLatitudes, envelopes.size);
+
+        this.cellStarts = new int[columns * rows + 1];
+        for (int entry = 0; entry < entryEvents.length; entry++) {
+            forEachCell(entry, cell -> cellStarts[cell + 1]++);
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        this.entries = new int[cellStarts[columns * rows]];
+        int[] nextPositions = Arrays.copyOf(cellStarts, columns * rows);
+        for (int entry = 0; entry < entryEvents.length; entry++) {
+            int indexedEntry = entry;
+            forEachCell(entry, cell -> entries[nextPositions[cell]++] = indexedEntry);
+        }
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public int size() {
+        return entryEvents.length;
+    }
+
+    /***
+     *
+     * @return the events with at least one geometry intersecting the box, in the order of the indexed list
+     */
+    public List<Event> getEventsWithin(BoundingBox box) {
+        BitSet matches = new BitSet(events.size());
+        if (box.crossesAntimeridian()) {
+            collect(box, box.getMinLongitude(), 180, matches, null);
+            collect(box, -180, box.getMaxLongitude(), matches, null);
+        } else {
+            collect(box, box.getMinLongitude(), box.getMaxLongitude(), matches, null);
+        }
+        return toEvents(matches);
+    }
+
+    /***
+     *
+     * @return the events with at least one geometry within the given distance of the point, in the order of the
+     * indexed list
+     */
+    public List<Event> getEventsNear(double latitude, double longitude, double radiusKm) {
+        BoundingBox box = BoundingBox.around(latitude, longitude, radiusKm);
+        EntryFilter withinRadius = entry -> GeoUtils.distanceToBoxKm(latitude, longitude,
+                entryMinLongitudes[entry], entryMinLatitudes[entry],
+                entryMaxLongitudes[entry], entryMaxLatitudes[entry]) <= radiusKm;
+
+        BitSet matches = new BitSet(events.size());
+        if (box.crossesAntimeridian()) {
+            collect(box, box.getMinLongitude(), 180, matches, withinRadius);
+            collect(box, -180, box.getMaxLongitude(), matches, withinRadius);
+        } else {
+            collect(box, box.getMinLongitude(), box.getMaxLongitude(), matches, withinRadius);
+        }
+        return toEvents(matches);
+    }
+
+    private void collect(BoundingBox box, double minLongitude, double maxLongitude, BitSet matches, EntryFilter filter) {
+        int minColumn = column(minLongitude);
+        int maxColumn = column(maxLongitude);
+        int minRow = row(box.getMinLatitude());
+        int maxRow = row(box.getMaxLatitude());
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cell = row * columns + column;
+                for (int position = cellStarts[cell]; position < cellStarts[cell + 1]; position++) {
+                    int entry = entries[position];
+                    if (matches.get(entryEvents[entry])) {
+                        continue;
+                    }
+                    if (box.intersects(entryMinLongitudes[entry], entryMinLatitudes[entry],
+                            entryMaxLongitudes[entry], entryMaxLatitudes[entry])
+                            && (filter == null || filter.accept(entry))) {
+                        matches.set(entryEvents[entry]);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Event> toEvents(BitSet matches) {
+        List<Event> matchingEvents = new ArrayList<>(matches.cardinality());
+        for (int eventIndex = matches.nextSetBit(0); eventIndex >= 0; eventIndex = matches.nextSetBit(eventIndex + 1)) {
+            matchingEvents.add(events.get(eventIndex));
+        }
+        return matchingEvents;
+    }
+
+    private void forEachCell(int entry, CellConsumer consumer) {
+        int minColumn = column(entryMinLongitudes[entry]);
+        int maxColumn = column(entryMaxLongitudes[entry]);
+        int minRow = row(entryMinLatitudes[entry]);
+        int maxRow = row(entryMaxLatitudes[entry]);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+
+    private int column(double longitude) {
+        return Math.max(0, Math.min(columns - 1, (int) ((longitude + 180) / cellSize)));
+    }
+
+    private int row(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) ((latitude + 90) / cellSize)));
+    }
+
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+
+    private interface EntryFilter {
+        boolean accept(int entry);
+    }
+
+    /***
+     * Growable parallel arrays holding the envelope of every indexed geometry while the index is built.
+     */
+    private static class EnvelopeBuffer {
+        private int size;
+        private int[] events = new int[64];
+        private double[] minLongitudes = new double[64];
+        private double[] minLatitudes = new double[64];
+        private double[] maxLongitudes = new double[64];
+        private double[] maxLatitudes = new double[64];
+
+        private void add(int eventIndex, Geometry geometry) {
+            double minLongitude = Double.POSITIVE_INFINITY;
+            double minLatitude = Double.POSITIVE_INFINITY;
+            double maxLongitude = Double.NEGATIVE_INFINITY;
+            double maxLatitude = Double.NEGATIVE_INFINITY;
+
+            List<Coordinates> positions = geometry.getPolygon() != null
+                    ? geometry.getPolygon()
+                    : geometry.getCoordinates() != null ? Collections.singletonList(geometry.getCoordinates()) : null;
+            if (positions == null || positions.isEmpty()) {
+                return;
+            }
+            for (Coordinates position : positions) {
+                minLongitude = Math.min(minLongitude, GeoUtils.longitudeOf(position));
+                maxLongitude = Math.max(maxLongitude, GeoUtils.longitudeOf(position));
+                minLatitude = Math.min(minLatitude, GeoUtils.latitudeOf(position));
+                maxLatitude = Math.max(maxLatitude, GeoUtils.latitudeOf(position));
+            }
+
+            if (size == events.length) {
+                int capacity = size * 2;
+                events = Arrays.copyOf(events, capacity);
+                minLongitudes = Arrays.copyOf(minLongitudes, capacity);
+                minLatitudes = Arrays.copyOf(minLatitudes, capacity);
+                maxLongitudes = Arrays.copyOf(maxLongitudes, capacity);
+                maxLatitudes = Arrays.copyOf(maxLatitudes, capacity);
+            }
+            events[size] = eventIndex;
+            minLongitudes[size] = minLongitude;
+            minLatitudes[size] = minLatitude;
+            maxLongitudes[size] = maxLongitude;
+            maxLatitudes[size] = maxLatitude;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package NASA.service.query;
+
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.exceptions.EONETException;
+import NASA.service.store.CompactEvent;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/***
+ * Position in the paging order of the events: the latest started event first, then by id. The start of an event
+ * is its earliest geometry date, which the new geometries and the closing of the event leave as it is, so an event
+ * keeps its place across refreshes. A cursor holds the start and id of the last event of a page rather than an
+ * offset, so it keeps pointing after the same event when a new snapshot adds or removes events before it.
+ */
+@Getter
+public class EventCursor {
+    private static final long NO_START = Long.MIN_VALUE;
+
+    private final long start;
+    private final String id;
+
+    public EventCursor(long start, String id) {
+        this.start = start;
+        this.id = id;
+    }
+
+    public static EventCursor of(Event event) {
+        return new EventCursor(getStart(event), event.getId());
+    }
+
+    /***
+     *
+     * @param cursor a cursor returned by {@link #encode()}
+     * @throws EONETException if the cursor is not a valid cursor
+     */
+    public static EventCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                throw new EONETException("Invalid cursor " + cursor);
+            }
+            return new EventCursor(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new EONETException("Invalid cursor " + cursor);
+        }
+    }
+
+    public String encode() {
+        String cursor = start + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /***
+     *
+     * @return the earliest geometry date of the event in milliseconds since the epoch, or the smallest time if it
+     * has none, which orders it after all the dated events
+     */
+    public static long getStart(Event event) {
+        long start = Long.MAX_VALUE;
+        if (event instanceof CompactEvent) {
+            start = ((CompactEvent) event).earliestTimestamp();
+        } else if (event.getGeometries() != null) {
+            for (Geometry geometry : event.getGeometries()) {
+                if (geometry.hasTimestamp()) {
+                    start = Math.min(start, geometry.getTimestamp());
+                }
+            }
+        }
+        return start == Long.MAX_VALUE ? NO_START : start;
+    }
+
+    /***
+     *
+     * @return the events in paging order; the start of every event is computed once
+     */
+    public static List<Event> sort(List<Event> events) {
+        RankedEvent[] rankedEvents = new RankedEvent[events.size()];
+        for (int i = 0; i < rankedEvents.length; i++) {
+            rankedEvents[i] = new RankedEvent(getStart(events.get(i)), events.get(i));
+        }
+        Arrays.sort(rankedEvents, RankedEvent.ORDER);
+
+        List<Event> sortedEvents = new ArrayList<>(rankedEvents.length);
+        for (RankedEvent rankedEvent : rankedEvents) {
+            sortedEvents.add(rankedEvent.event);
+        }
+        return sortedEvents;
+    }
+
+    /***
+     *
+     * @param sortedEvents events in paging order
+     * @return the position of the first event after this cursor
+     */
+    public int indexAfter(List<Event> sortedEvents) {
+        int low = 0;
+        int high = sortedEvents.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isAfter(sortedEvents.get(middle))) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean isAfter(Event event) {
+        long eventStart = getStart(event);
+        if (eventStart != start) {
+            return eventStart < start;
+        }
+        return compareIds(event.getId(), id) > 0;
+    }
+
+    private static int compareIds(String id, String otherId) {
+        if (id == null || otherId == null) {
+            return id == null ? (otherId == null ? 0 : -1) : 1;
+        }
+        return id.compareTo(otherId);
+    }
+
+    private static class RankedEvent {
+        private static final Comparator<RankedEvent> ORDER = (first, second) -> {
+            if (first.start != second.start) {
+                return Long.compare(second.start, first.start);
+            }
+            return compareIds(first.event.getId(), second.event.getId());
+        };
+
+        private final long start;
+        private final Event event;
+
+        private RankedEvent(long start, Event event) {
+            this.start = start;
+            this.event = event;
+        }
+    }
+}
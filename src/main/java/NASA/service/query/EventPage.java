@@ -0,0 +1,36 @@
+package NASA.service.query;
+
+import NASA.model.Event;
+import lombok.Getter;
+
+import java.util.List;
+
+/***
+ * One page of events in paging order, with the cursor of the next page.
+ */
+@Getter
+public class EventPage {
+    private final List<Event> events;
+    /***
+     * The encoded cursor to pass to get the next page, or null if this is the last page.
+     */
+    private final String nextCursor;
+
+    public EventPage(List<Event> events, String nextCursor) {
+        this.events = events;
+        this.nextCursor = nextCursor;
+    }
+
+    /***
+     *
+     * @param events the events of the page followed by at least one more event if there is a next page
+     * @param limit the size of a page
+     */
+    static EventPage of(List<Event> events, int limit) {
+        if (events.size() <= limit) {
+            return new EventPage(events, null);
+        }
+        List<Event> pageEvents = events.subList(0, limit);
+        return new EventPage(pageEvents, EventCursor.of(pageEvents.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,181 @@
+package NASA.service.query;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.Source;
+import NASA.model.enums.EventStatus;
+import NASA.model.enums.GeometryType;
+import NASA.service.index.IntervalIndex;
+import NASA.service.store.CompactEvent;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/***
+ * Immutable description of the events a request asks for. Every filter left at its default accepts all events;
+ * the active ones are composed into a single predicate, cheapest checks first, so a query costs one pass over
+ * the candidate events however many filters it combines. The limit and the cursor are not filters: they select
+ * a page of the accepted events, see {@link EventCursor}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class EventQuery {
+    @Builder.Default
+    private final EventStatus status = EventStatus.all;
+    private final Integer categoryId;
+    private final long priorDays;
+    private final long affectedPlacesNo;
+    @Builder.Default
+    private final long from = Long.MIN_VALUE;
+    @Builder.Default
+    private final long to = Long.MAX_VALUE;
+    private final GeometryType geometryType;
+    /***
+     * Comma separated source ids; an event matches if it has one of them.
+     */
+    private final String source;
+    private final int limit;
+    /***
+     * The cursor of the page to get, null for the first page.
+     */
+    private final EventCursor after;
+
+    public boolean hasTimeWindow() {
+        return from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+    }
+
+    /***
+     *
+     * @return whether only a page of the accepted events is asked for
+     */
+    public boolean isPaged() {
+        return limit != 0 || after != null;
+    }
+
+    /***
+     *
+     * @return whether any filter is active, so not every candidate event is accepted
+     */
+    public boolean hasFilters() {
+        return !EventStatus.all.equals(status) || categoryId != null || priorDays != 0 || affectedPlacesNo != 0
+                || hasTimeWindow() || geometryType != null || source != null;
+    }
+
+    /***
+     *
+     * @return a key identifying the query, equal for queries selecting the same events
+     */
+    public String getKey() {
+        return status + "/" + categoryId + "/" + priorDays + "/" + affectedPlacesNo + "/" + from + "/" + to + "/" + geometryType
+                + "/" + source + "/" + limit + "/" + (after == null ? null : after.encode());
+    }
+
+    /***
+     *
+     * @param now the current time in milliseconds since the epoch, which the prior days are counted back from
+     * @return the conjunction of the active filters, or null if the query accepts every event
+     */
+    public Predicate<Event> toPredicate(long now) {
+        Predicate<Event> predicate = null;
+        if (!EventStatus.all.equals(status)) {
+            boolean closed = EventStatus.closed.equals(status);
+            predicate = and(predicate, event -> (event.getClosed() != null) == closed);
+        }
+        if (affectedPlacesNo != 0) {
+            predicate = and(predicate,
+                    event -> event.getGeometries() == null || event.getGeometries().size() >= affectedPlacesNo);
+        }
+        if (geometryType != null) {
+            predicate = and(predicate, this::hasGeometryType);
+        }
+        if (categoryId != null) {
+            predicate = and(predicate, this::hasCategory);
+        }
+        if (priorDays != 0) {
+            long startOfToday = now / TimeUnit.DAYS.toMillis(1) * TimeUnit.DAYS.toMillis(1);
+            long since = startOfToday - TimeUnit.DAYS.toMillis(priorDays - 1);
+            predicate = and(predicate, event -> hasGeometrySince(event, since));
+        }
+        if (source != null) {
+            Set<String> sourceIds = new HashSet<>(Arrays.asList(source.split(",")));
+            predicate = and(predicate, event -> hasSource(event, sourceIds));
+        }
+        if (hasTimeWindow()) {
+            predicate = and(predicate, event -> IntervalIndex.overlaps(event, from, to));
+        }
+        return predicate;
+    }
+
+    private static Predicate<Event> and(Predicate<Event> predicate, Predicate<Event> next) {
+        return predicate == null ? next : predicate.and(next);
+    }
+
+    private boolean hasCategory(Event event) {
+        List<Category> categories = event.getCategories();
+        if (categories == null) {
+            return false;
+        }
+        for (Category category : categories) {
+            if (category.getId() == categoryId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSource(Event event, Set<String> sourceIds) {
+        List<Source> sources = event.getSources();
+        if (sources == null) {
+            return false;
+        }
+        for (Source eventSource : sources) {
+            if (sourceIds.contains(eventSource.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasGeometryType(Event event) {
+        if (event instanceof CompactEvent) {
+            return ((CompactEvent) event).hasGeometryType(geometryType);
+        }
+        List<Geometry> geometries = event.getGeometries();
+        if (geometries == null) {
+            return false;
+        }
+        for (Geometry geometry : geometries) {
+            if (geometryType.equals(geometry.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***
+     * Local equivalent of EONET's days query parameter: accepts the events with at least one geometry
+     * dated at or after the given time.
+     */
+    private static boolean hasGeometrySince(Event event, long since) {
+        if (event instanceof CompactEvent) {
+            return ((CompactEvent) event).latestTimestamp() >= since;
+        }
+        List<Geometry> geometries = event.getGeometries();
+        if (geometries == null) {
+            return false;
+        }
+        for (Geometry geometry : geometries) {
+            if (geometry.hasTimestamp() && geometry.getTimestamp() >= since) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
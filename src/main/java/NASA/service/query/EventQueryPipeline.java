@@ -0,0 +1,130 @@
+package NASA.service.query;
+
+import NASA.model.Event;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/***
+ * Runs an {@link EventQuery} over a list of candidate events in a single pass, which stops as soon as the
+ * limit of the query is reached. The candidates are never modified and keep their order in the result.
+ * Large candidate lists are filtered in parallel. Paged queries return their page in the order of
+ * {@link EventCursor}.
+ */
+@Component
+public class EventQueryPipeline {
+    private final int parallelThreshold;
+
+    private final Timer sequentialTimer;
+    private final Timer parallelTimer;
+    private final DistributionSummary inputEvents;
+    private final DistributionSummary outputEvents;
+
+    /***
+     *
+     * @param parallelThreshold the number of candidate events from which the query runs in parallel
+     */
+    public EventQueryPipeline(MeterRegistry meterRegistry,
+                              @Value("${eonet.query.parallel-threshold:20000}") int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+
+        this.sequentialTimer = Timer.builder("eonet.query")
+                .description("Queries run over candidate events")
+                .tag("mode", "sequential")
+                .register(meterRegistry);
+        this.parallelTimer = Timer.builder("eonet.query")
+                .description("Queries run over candidate events")
+                .tag("mode", "parallel")
+                .register(meterRegistry);
+        this.inputEvents = DistributionSummary.builder("eonet.query.events")
+                .description("Events entering and leaving a query")
+                .tag("stage", "input")
+                .register(meterRegistry);
+        this.outputEvents = DistributionSummary.builder("eonet.query.events")
+                .description("Events entering and leaving a query")
+                .tag("stage", "output")
+                .register(meterRegistry);
+    }
+
+    /***
+     *
+     * @param events the candidate events
+     * @param query the filters to apply
+     * @return the first candidate events accepted by the query, up to its limit, in their original order;
+     * the candidates themselves if the query accepts every event and has no limit
+     */
+    public List<Event> run(List<Event> events, EventQuery query) {
+        Predicate<Event> predicate = query.toPredicate(System.currentTimeMillis());
+        int limit = query.getLimit() == 0 ? Integer.MAX_VALUE : query.getLimit();
+        if (predicate == null) {
+            return limit < events.size() ? new ArrayList<>(events.subList(0, limit)) : events;
+        }
+
+        long start = System.nanoTime();
+        List<Event> filteredEvents;
+        if (events.size() >= parallelThreshold) {
+            filteredEvents = events.parallelStream().filter(predicate).limit(limit).collect(Collectors.toList());
+            parallelTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else {
+            filteredEvents = new ArrayList<>();
+            for (Event event : events) {
+                if (predicate.test(event)) {
+                    filteredEvents.add(event);
+                    if (filteredEvents.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            sequentialTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        inputEvents.record(events.size());
+        outputEvents.record(filteredEvents.size());
+        return filteredEvents;
+    }
+
+    /***
+     *
+     * @param events the candidate events, in any order
+     * @return the page of accepted events the query asks for, or all of them in their original order if the
+     * query is not paged
+     */
+    public EventPage page(List<Event> events, EventQuery query) {
+        if (!query.isPaged()) {
+            return new EventPage(run(events, query), null);
+        }
+
+        List<Event> sortedEvents = EventCursor.sort(run(events, query.toBuilder().limit(0).build()));
+        int pageSize = getPageSize(query);
+        int start = query.getAfter() == null ? 0 : query.getAfter().indexAfter(sortedEvents);
+        int end = (int) Math.min(sortedEvents.size(), (long) start + pageSize + 1);
+        return EventPage.of(sortedEvents.subList(start, end), pageSize);
+    }
+
+    /***
+     * Pages candidates already in the order of {@link EventCursor}: the pass starts right after the cursor and
+     * stops one event after the page, so its cost depends on the page size rather than on the number of events.
+     *
+     * @param sortedEvents the candidate events, in paging order
+     */
+    public EventPage pageSorted(List<Event> sortedEvents, EventQuery query) {
+        int pageSize = getPageSize(query);
+        int start = query.getAfter() == null ? 0 : query.getAfter().indexAfter(sortedEvents);
+        EventQuery pageQuery = query.toBuilder()
+                .limit(pageSize == Integer.MAX_VALUE ? 0 : pageSize + 1)
+                .build();
+        return EventPage.of(run(sortedEvents.subList(start, sortedEvents.size()), pageQuery), pageSize);
+    }
+
+    private static int getPageSize(EventQuery query) {
+        return query.getLimit() == 0 ? Integer.MAX_VALUE : query.getLimit();
+    }
+}
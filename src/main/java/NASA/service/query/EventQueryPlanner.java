@@ -0,0 +1,91 @@
+package NASA.service.query;
+
+import NASA.model.enums.EventStatus;
+import NASA.model.enums.QueryParameterType;
+import NASA.utils.URLManipulator;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Splits an {@link EventQuery} between EONET and the local pipeline. The filters EONET supports are pushed
+ * upstream: the status, the prior days, the sources and the category, as the path of the category. The other
+ * filters stay local. The limit is pushed upstream only for the first page and when no filter is left to apply
+ * locally, since a local filter applied after an upstream limit could leave fewer events than asked for.
+ */
+public class EventQueryPlanner {
+    private final String eventsUrl;
+    private final String categoriesUrl;
+
+    /***
+     *
+     * @param eventsUrl the url of the EONET events
+     * @param categoriesUrl the url of the EONET categories, followed by a category id to get its events
+     */
+    public EventQueryPlanner(String eventsUrl, String categoriesUrl) {
+        this.eventsUrl = eventsUrl;
+        this.categoriesUrl = categoriesUrl;
+    }
+
+    public Plan plan(EventQuery query) {
+        EventQuery localQuery = query.toBuilder()
+                .status(EventStatus.all)
+                .categoryId(null)
+                .priorDays(0)
+                .source(null)
+                .build();
+        boolean pushLimit = query.getLimit() != 0 && query.getAfter() == null && !localQuery.hasFilters();
+
+        String url = query.getCategoryId() == null ? eventsUrl : categoriesUrl + "/" + query.getCategoryId();
+        List<String> urls = new ArrayList<>();
+        if (EventStatus.all.equals(query.getStatus())) {
+            urls.add(getUrl(url, query, EventStatus.open, pushLimit));
+            urls.add(getUrl(url, query, EventStatus.closed, pushLimit));
+        } else {
+            urls.add(getUrl(url, query, query.getStatus(), pushLimit));
+        }
+        return new Plan(urls, localQuery);
+    }
+
+    /***
+     * Builds the url with its query parameters always in the order of {@link QueryParameterType}, so equal
+     * queries give equal urls, which the upstream coalescing and revalidation are keyed by.
+     */
+    private String getUrl(String url, EventQuery query, EventStatus status, boolean pushLimit) {
+        Map<QueryParameterType, String> queryParams = new EnumMap<>(QueryParameterType.class);
+        if (query.getSource() != null) {
+            queryParams.put(QueryParameterType.source, query.getSource());
+        }
+        queryParams.put(QueryParameterType.status, status.toString());
+        if (pushLimit) {
+            queryParams.put(QueryParameterType.limit, String.valueOf(query.getLimit()));
+        }
+        if (query.getPriorDays() != 0) {
+            queryParams.put(QueryParameterType.days, String.valueOf(query.getPriorDays()));
+        }
+
+        URLManipulator urlManipulator = new URLManipulator(url, queryParams);
+        return urlManipulator.getUrlWithQueryParams();
+    }
+
+    @Getter
+    public static class Plan {
+        /***
+         * The urls to fetch, the open events first when both open and closed events are asked for.
+         */
+        private final List<String> urls;
+        /***
+         * The filters and the limit left to apply to the fetched events.
+         */
+        private final EventQuery localQuery;
+
+        private Plan(List<String> urls, EventQuery localQuery) {
+            this.urls = Collections.unmodifiableList(urls);
+            this.localQuery = localQuery;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package NASA.service.store;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.service.index.IntervalIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/***
+ * Append-only file of the events closed in one month. Every event is a record of its length, its CRC32 and the
+ * event written by the {@link EventCodec}; records are only ever appended, so a crash can at most leave a torn
+ * last record, which is cut off when the segment is opened again. Next to the events file, a summary file keeps
+ * the span of the events, the categories they have and their ids, so a query can skip the segment without
+ * reading it, and the archive knows which events it holds without decoding any. A summary that does not match
+ * the events file is rebuilt by scanning it.
+ */
+public final class ArchiveSegment {
+    public static final String EVENTS_SUFFIX = ".events";
+    private static final String SUMMARY_SUFFIX = ".summary";
+    private static final int SUMMARY_MAGIC = 0x454F4E41;
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    private final String name;
+    private final Path eventsFile;
+    private final Path summaryFile;
+    private volatile Summary summary;
+
+    private ArchiveSegment(String name, Path eventsFile, Summary summary) {
+        this.name = name;
+        this.eventsFile = eventsFile;
+        this.summaryFile = getSummaryFile(eventsFile, name);
+        this.summary = summary;
+    }
+
+    /***
+     * Opens the segment, creating its files if they do not exist yet.
+     *
+     * @param name the name of the files of the segment, without their suffix
+     */
+    public static ArchiveSegment open(Path directory, String name) throws IOException {
+        Files.createDirectories(directory);
+        Path eventsFile = directory.resolve(name + EVENTS_SUFFIX);
+        if (!Files.exists(eventsFile)) {
+            Files.createFile(eventsFile);
+        }
+        Summary summary = readSummary(getSummaryFile(eventsFile, name));
+        ArchiveSegment segment;
+        if (summary != null && summary.length == Files.size(eventsFile)) {
+            segment = new ArchiveSegment(name, eventsFile, summary);
+        } else {
+            segment = new ArchiveSegment(name, eventsFile, scan(eventsFile));
+            segment.writeSummary();
+        }
+        return segment;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getEventCount() {
+        return summary.eventIds.length;
+    }
+
+    public List<String> getEventIds() {
+        return Collections.unmodifiableList(Arrays.asList(summary.eventIds));
+    }
+
+    /***
+     *
+     * @param categoryId the category the events must have, or null for any category
+     * @return false if no event of the segment can overlap the [from, to] window and have the category
+     */
+    public boolean mayContain(long from, long to, Integer categoryId) {
+        Summary current = summary;
+        if (current.eventIds.length == 0 || current.start > to || current.end < from) {
+            return false;
+        }
+        return categoryId == null || Arrays.binarySearch(current.categoryIds, categoryId) >= 0;
+    }
+
+    /***
+     * Appends the events and updates the summary. An event already in the segment is appended as a newer copy of
+     * it: its id is listed once, the span and categories of the summary cover both copies, and the copies are
+     * iterated in the order they were appended.
+     */
+    public synchronized void append(List<Event> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        SummaryBuilder builder = new SummaryBuilder(summary);
+        for (Event event : events) {
+            recordBytes.reset();
+            EventCodec.writeEvent(event, record);
+            CRC32 checksum = new CRC32();
+            checksum.update(recordBytes.toByteArray());
+            out.writeInt(recordBytes.size());
+            out.writeInt((int) checksum.getValue());
+            recordBytes.writeTo(out);
+            builder.add(event);
+        }
+        out.flush();
+
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            summary = builder.build(channel.size());
+        }
+        writeSummary();
+    }
+
+    /***
+     *
+     * @return the events of the segment in the order they were appended, decoded while iterating; events appended
+     * after the call are not returned
+     */
+    public Iterator<Event> iterator() throws IOException {
+        long length = summary.length;
+        if (length == 0) {
+            return Collections.emptyIterator();
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        return new Iterator<Event>() {
+            @Override
+            public boolean hasNext() {
+                return buffer.hasRemaining();
+            }
+
+            @Override
+            public Event next() {
+                if (!buffer.hasRemaining()) {
+                    throw new NoSuchElementException();
+                }
+                buffer.position(buffer.position() + RECORD_HEADER_SIZE);
+                return EventCodec.readEvent(buffer);
+            }
+        };
+    }
+
+    private static Path getSummaryFile(Path eventsFile, String name) {
+        return eventsFile.resolveSibling(name + SUMMARY_SUFFIX);
+    }
+
+    /***
+     * Reads every valid record of the events file, cutting off the file after the last one.
+     */
+    private static Summary scan(Path eventsFile) throws IOException {
+        SummaryBuilder builder = new SummaryBuilder(null);
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long validLength = 0;
+            if (size > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int expectedChecksum = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer record = buffer.slice();
+                    record.limit(length);
+                    CRC32 checksum = new CRC32();
+                    checksum.update(record.duplicate());
+                    if ((int) checksum.getValue() != expectedChecksum) {
+                        break;
+                    }
+                    try {
+                        builder.add(EventCodec.readEvent(record));
+                    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+                    validLength = buffer.position();
+                }
+            }
+            if (validLength < size) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            return builder.build(validLength);
+        }
+    }
+
+    /***
+     *
+     * @return the summary of the file, or null if there is none or it is corrupt
+     */
+    private static Summary readSummary(Path summaryFile) throws IOException {
+        if (!Files.exists(summaryFile)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(summaryFile));
+        try {
+            if (buffer.remaining() < 8) {
+                return null;
+            }
+            ByteBuffer content = buffer.duplicate();
+            content.limit(buffer.limit() - 8);
+            CRC32 checksum = new CRC32();
+            checksum.update(content.duplicate());
+            if (checksum.getValue() != buffer.getLong(buffer.limit() - 8) || content.getInt() != SUMMARY_MAGIC) {
+                return null;
+            }
+            long length = content.getLong();
+            long start = content.getLong();
+            long end = content.getLong();
+            int[] categoryIds = new int[content.getInt()];
+            for (int i = 0; i < categoryIds.length; i++) {
+                categoryIds[i] = content.getInt();
+            }
+            String[] eventIds = new String[content.getInt()];
+            for (int i = 0; i < eventIds.length; i++) {
+                eventIds[i] = EventCodec.readString(content);
+            }
+            return new Summary(length, start, end, categoryIds, eventIds);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    /***
+     * Writes the summary next to its target and moves it over it, as the {@link SnapshotFile}.
+     */
+    private void writeSummary() throws IOException {
+        Summary current = summary;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SUMMARY_MAGIC);
+        out.writeLong(current.length);
+        out.writeLong(current.start);
+        out.writeLong(current.end);
+        out.writeInt(current.categoryIds.length);
+        for (int categoryId : current.categoryIds) {
+            out.writeInt(categoryId);
+        }
+        out.writeInt(current.eventIds.length);
+        for (String eventId : current.eventIds) {
+            EventCodec.writeString(eventId, out);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeLong(checksum.getValue());
+        out.flush();
+
+        Path temporaryFile = Files.createTempFile(summaryFile.toAbsolutePath().getParent(), name, ".tmp");
+        try {
+            Files.write(temporaryFile, bytes.toByteArray());
+            Files.move(temporaryFile, summaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /***
+     * What the segment holds, up to its length in bytes. A new summary replaces it after every append.
+     */
+    private static final class Summary {
+        private final long length;
+        private final long start;
+        private final long end;
+        private final int[] categoryIds;
+        private final String[] eventIds;
+
+        private Summary(long length, long start, long end, int[] categoryIds, String[] eventIds) {
+            this.length = length;
+            this.start = start;
+            this.end = end;
+            this.categoryIds = categoryIds;
+            this.eventIds = eventIds;
+        }
+    }
+
+    private static final class SummaryBuilder {
+        private long start = Long.MAX_VALUE;
+        private long end = Long.MIN_VALUE;
+        private final TreeSet<Integer> categoryIds = new TreeSet<>();
+        private final Set<String> eventIds = new LinkedHashSet<>();
+
+        private SummaryBuilder(Summary summary) {
+            if (summary != null) {
+                start = summary.start;
+                end = summary.end;
+                for (int categoryId : summary.categoryIds) {
+                    categoryIds.add(categoryId);
+                }
+                eventIds.addAll(Arrays.asList(summary.eventIds));
+            }
+        }
+
+        private void add(Event event) {
+            long[] interval = IntervalIndex.getInterval(event);
+            if (interval != null) {
+                start = Math.min(start, interval[0]);
+                end = Math.max(end, interval[1]);
+            }
+            if (event.getCategories() != null) {
+                for (Category category : event.getCategories()) {
+                    categoryIds.add(category.getId());
+                }
+            }
+            eventIds.add(event.getId());
+        }
+
+        private Summary build(long length) {
+            int[] categories = new int[categoryIds.size()];
+            int i = 0;
+            for (int categoryId : categoryIds) {
+                categories[i++] = categoryId;
+            }
+            return new Summary(length, start, end, categories, eventIds.toArray(new String[0]));
+        }
+    }
+}
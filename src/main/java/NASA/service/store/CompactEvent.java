@@ -0,0 +1,77 @@
+package NASA.service.store;
+
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.GeometryType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Read-only {@link Event} whose geometries live in {@link GeometryColumns} shared with the other events it was
+ * compacted with. The geometries are materialized only when {@link #getGeometries()} is read, typically while
+ * the event is serialized; the filters and indexes read the columns directly through the methods below.
+ */
+public class CompactEvent extends Event {
+    private final GeometryColumns columns;
+    private final int index;
+
+    private CompactEvent(Event event, GeometryColumns columns, int index) {
+        this.columns = columns;
+        this.index = index;
+        setId(event.getId());
+        setTitle(event.getTitle());
+        setDescription(event.getDescription());
+        setLink(event.getLink());
+        setCategories(event.getCategories());
+        setSources(event.getSources());
+        setClosed(event.getClosed());
+    }
+
+    /***
+     *
+     * @return compact copies of the events, in the same order, all sharing one {@link GeometryColumns}
+     */
+    public static List<Event> compact(List<Event> events) {
+        GeometryColumns columns = new GeometryColumns(events);
+        List<Event> compactEvents = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            compactEvents.add(new CompactEvent(events.get(i), columns, i));
+        }
+        return compactEvents;
+    }
+
+    @Override
+    public List<Geometry> getGeometries() {
+        return columns.getGeometries(index);
+    }
+
+    @Override
+    public void setGeometries(List<Geometry> geometries) {
+        throw new UnsupportedOperationException("The geometries of a compact event cannot be changed");
+    }
+
+    public int geometryCount() {
+        return columns.getGeometryCount(index);
+    }
+
+    /***
+     *
+     * @return the earliest geometry date in milliseconds since the epoch, or Long.MAX_VALUE if there is none
+     */
+    public long earliestTimestamp() {
+        return columns.getEarliestTimestamp(index);
+    }
+
+    /***
+     *
+     * @return the latest geometry date in milliseconds since the epoch, or Long.MIN_VALUE if there is none
+     */
+    public long latestTimestamp() {
+        return columns.getLatestTimestamp(index);
+    }
+
+    public boolean hasGeometryType(GeometryType type) {
+        return columns.hasGeometryType(index, type);
+    }
+}
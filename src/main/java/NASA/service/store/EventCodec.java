@@ -0,0 +1,209 @@
+package NASA.service.store;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.Layer;
+import NASA.model.Source;
+import NASA.model.enums.GeometryType;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/***
+ * Binary encoding of the model shared by the {@link SnapshotFile} and the {@link ArchiveSegment}s. Values are
+ * written big-endian; a null string, list or layer is written as a length of -1 or a false flag.
+ */
+final class EventCodec {
+    static final int NULL = -1;
+    private static final GeometryType[] TYPES = GeometryType.values();
+
+    private EventCodec() {
+    }
+
+    /***
+     * Writes the event with its categories and sources inline.
+     */
+    static void writeEvent(Event event, DataOutput out) throws IOException {
+        writeString(event.getId(), out);
+        writeString(event.getTitle(), out);
+        writeString(event.getDescription(), out);
+        writeString(event.getLink(), out);
+        out.writeInt(event.getCategories() == null ? NULL : event.getCategories().size());
+        if (event.getCategories() != null) {
+            for (Category category : event.getCategories()) {
+                writeCategory(category, out);
+            }
+        }
+        out.writeInt(event.getSources() == null ? NULL : event.getSources().size());
+        if (event.getSources() != null) {
+            for (Source source : event.getSources()) {
+                writeSource(source, out);
+            }
+        }
+        out.writeLong(event.getClosed() == null ? Long.MIN_VALUE : event.getClosed().getTime());
+        writeGeometries(event.getGeometries(), out);
+    }
+
+    static Event readEvent(ByteBuffer in) {
+        Event event = new Event();
+        event.setId(readString(in));
+        event.setTitle(readString(in));
+        event.setDescription(readString(in));
+        event.setLink(readString(in));
+        int categoryCount = in.getInt();
+        if (categoryCount != NULL) {
+            List<Category> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(readCategory(in));
+            }
+            event.setCategories(categories);
+        }
+        int sourceCount = in.getInt();
+        if (sourceCount != NULL) {
+            List<Source> sources = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                sources.add(readSource(in));
+            }
+            event.setSources(sources);
+        }
+        long closed = in.getLong();
+        event.setClosed(closed == Long.MIN_VALUE ? null : new Date(closed));
+        event.setGeometries(readGeometries(in));
+        return event;
+    }
+
+    static void writeCategory(Category category, DataOutput out) throws IOException {
+        out.writeInt(category.getId());
+        writeString(category.getTitle(), out);
+        writeString(category.getDescription(), out);
+        writeString(category.getLink(), out);
+        Layer layer = category.getLayer();
+        out.writeBoolean(layer != null);
+        if (layer != null) {
+            writeString(layer.getName(), out);
+            writeString(layer.getServiceUrl(), out);
+            writeString(layer.getServiceTypeId(), out);
+            out.writeInt(layer.getParameters() == null ? NULL : layer.getParameters().size());
+            if (layer.getParameters() != null) {
+                for (String parameter : layer.getParameters()) {
+                    writeString(parameter, out);
+                }
+            }
+        }
+    }
+
+    static Category readCategory(ByteBuffer in) {
+        Category category = new Category(in.getInt(), readString(in), readString(in), readString(in), null);
+        if (in.get() != 0) {
+            Layer layer = new Layer(readString(in), readString(in), readString(in), null);
+            int parameterCount = in.getInt();
+            if (parameterCount != NULL) {
+                List<String> parameters = new ArrayList<>(parameterCount);
+                for (int i = 0; i < parameterCount; i++) {
+                    parameters.add(readString(in));
+                }
+                layer.setParameters(parameters);
+            }
+            category.setLayer(layer);
+        }
+        return category;
+    }
+
+    static void writeSource(Source source, DataOutput out) throws IOException {
+        writeString(source.getId(), out);
+        writeString(source.getTitle(), out);
+        writeString(source.getUrl(), out);
+        writeString(source.getLink(), out);
+    }
+
+    static Source readSource(ByteBuffer in) {
+        return new Source(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    static void writeGeometries(List<Geometry> geometries, DataOutput out) throws IOException {
+        out.writeInt(geometries == null ? NULL : geometries.size());
+        if (geometries == null) {
+            return;
+        }
+        for (Geometry geometry : geometries) {
+            out.writeInt(geometry.getId());
+            out.writeLong(geometry.getTimestamp());
+            out.writeByte(geometry.getType() == null ? NULL : geometry.getType().ordinal());
+            writeCoordinates(geometry.getCoordinates(), out);
+            out.writeInt(geometry.getPolygon() == null ? NULL : geometry.getPolygon().size());
+            if (geometry.getPolygon() != null) {
+                for (Coordinates coordinates : geometry.getPolygon()) {
+                    writeCoordinates(coordinates, out);
+                }
+            }
+        }
+    }
+
+    static List<Geometry> readGeometries(ByteBuffer in) {
+        int count = in.getInt();
+        if (count == NULL) {
+            return null;
+        }
+        List<Geometry> geometries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Geometry geometry = new Geometry();
+            geometry.setId(in.getInt());
+            geometry.setTimestamp(in.getLong());
+            byte type = in.get();
+            geometry.setType(type == NULL ? null : TYPES[type]);
+            geometry.setCoordinates(readCoordinates(in));
+            int polygonSize = in.getInt();
+            if (polygonSize != NULL) {
+                List<Coordinates> polygon = new ArrayList<>(polygonSize);
+                for (int j = 0; j < polygonSize; j++) {
+                    polygon.add(readCoordinates(in));
+                }
+                geometry.setPolygon(polygon);
+            }
+            geometries.add(geometry);
+        }
+        return geometries;
+    }
+
+    private static void writeCoordinates(Coordinates coordinates, DataOutput out) throws IOException {
+        out.writeBoolean(coordinates != null);
+        if (coordinates != null) {
+            out.writeDouble(coordinates.getLatitude());
+            out.writeDouble(coordinates.getLongitude());
+        }
+    }
+
+    private static Coordinates readCoordinates(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return new Coordinates(in.getDouble(), in.getDouble());
+    }
+
+    static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,194 @@
+package NASA.service.store;
+
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.GeometryType;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/***
+ * The geometries of a list of events stored column by column in primitive arrays: the geometries of the event at
+ * position i are the rows eventStarts[i] to eventStarts[i + 1] of the geometry columns, and the polygon ring of
+ * the geometry at row j holds the rows polygonStarts[j] to polygonStarts[j + 1] of the ring columns. A point
+ * costs about 33 bytes instead of a Geometry, a Coordinates and a Date object. {@link Geometry} objects are only
+ * created when {@link #getGeometries(int)} is read, and are copies: changing them does not change the columns.
+ */
+public class GeometryColumns implements Serializable {
+    private static final byte NO_TYPE = -1;
+    private static final GeometryType[] TYPES = GeometryType.values();
+
+    private final int[] eventStarts;
+    /***
+     * The events whose geometry list is null rather than empty.
+     */
+    private final BitSet eventsWithoutGeometries = new BitSet();
+
+    private final int[] ids;
+    private final long[] timestamps;
+    private final byte[] types;
+    /***
+     * The coordinates of every geometry, NaN for geometries without coordinates.
+     */
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final int[] polygonStarts;
+    /***
+     * The geometries that have a polygon, which may be empty.
+     */
+    private final BitSet polygons = new BitSet();
+    private final double[] polygonLatitudes;
+    private final double[] polygonLongitudes;
+
+    public GeometryColumns(List<Event> events) {
+        int geometryCount = 0;
+        int polygonPointCount = 0;
+        for (Event event : events) {
+            if (event.getGeometries() == null) {
+                continue;
+            }
+            for (Geometry geometry : event.getGeometries()) {
+                geometryCount++;
+                if (geometry.getPolygon() != null) {
+                    polygonPointCount += geometry.getPolygon().size();
+                }
+            }
+        }
+
+        this.eventStarts = new int[events.size() + 1];
+        this.ids = new int[geometryCount];
+        this.timestamps = new long[geometryCount];
+        this.types = new byte[geometryCount];
+        this.latitudes = new double[geometryCount];
+        this.longitudes = new double[geometryCount];
+        this.polygonStarts = new int[geometryCount + 1];
+        this.polygonLatitudes = new double[polygonPointCount];
+        this.polygonLongitudes = new double[polygonPointCount];
+
+        int row = 0;
+        int polygonRow = 0;
+        for (int eventIndex = 0; eventIndex < events.size(); eventIndex++) {
+            eventStarts[eventIndex] = row;
+            List<Geometry> geometries = events.get(eventIndex).getGeometries();
+            if (geometries == null) {
+                eventsWithoutGeometries.set(eventIndex);
+                continue;
+            }
+            for (Geometry geometry : geometries) {
+                ids[row] = geometry.getId();
+                timestamps[row] = geometry.getTimestamp();
+                types[row] = geometry.getType() == null ? NO_TYPE : (byte) geometry.getType().ordinal();
+                Coordinates coordinates = geometry.getCoordinates();
+                latitudes[row] = coordinates == null ? Double.NaN : coordinates.getLatitude();
+                longitudes[row] = coordinates == null ? Double.NaN : coordinates.getLongitude();
+
+                polygonStarts[row] = polygonRow;
+                if (geometry.getPolygon() != null) {
+                    polygons.set(row);
+                    for (Coordinates position : geometry.getPolygon()) {
+                        polygonLatitudes[polygonRow] = position.getLatitude();
+                        polygonLongitudes[polygonRow] = position.getLongitude();
+                        polygonRow++;
+                    }
+                }
+                row++;
+            }
+        }
+        eventStarts[events.size()] = row;
+        polygonStarts[geometryCount] = polygonRow;
+    }
+
+    /***
+     *
+     * @param eventIndex the position of the event in the list the columns were built from
+     * @return a read-only view of the geometries of the event, or null if the event had no geometry list
+     */
+    public List<Geometry> getGeometries(int eventIndex) {
+        if (eventsWithoutGeometries.get(eventIndex)) {
+            return null;
+        }
+        return new GeometryView(eventStarts[eventIndex], eventStarts[eventIndex + 1]);
+    }
+
+    public int getGeometryCount(int eventIndex) {
+        return eventStarts[eventIndex + 1] - eventStarts[eventIndex];
+    }
+
+    /***
+     *
+     * @return the earliest geometry date of the event in milliseconds since the epoch, or Long.MAX_VALUE if it has none
+     */
+    public long getEarliestTimestamp(int eventIndex) {
+        long earliest = Long.MAX_VALUE;
+        for (int row = eventStarts[eventIndex]; row < eventStarts[eventIndex + 1]; row++) {
+            if (timestamps[row] != Geometry.NO_TIMESTAMP) {
+                earliest = Math.min(earliest, timestamps[row]);
+            }
+        }
+        return earliest;
+    }
+
+    /***
+     *
+     * @return the latest geometry date of the event in milliseconds since the epoch, or Long.MIN_VALUE if it has none
+     */
+    public long getLatestTimestamp(int eventIndex) {
+        long latest = Long.MIN_VALUE;
+        for (int row = eventStarts[eventIndex]; row < eventStarts[eventIndex + 1]; row++) {
+            latest = Math.max(latest, timestamps[row]);
+        }
+        return latest;
+    }
+
+    public boolean hasGeometryType(int eventIndex, GeometryType type) {
+        byte ordinal = (byte) type.ordinal();
+        for (int row = eventStarts[eventIndex]; row < eventStarts[eventIndex + 1]; row++) {
+            if (types[row] == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Geometry getGeometry(int row) {
+        Coordinates coordinates = Double.isNaN(latitudes[row]) ? null : new Coordinates(latitudes[row], longitudes[row]);
+        List<Coordinates> polygon = null;
+        if (polygons.get(row)) {
+            polygon = new ArrayList<>(polygonStarts[row + 1] - polygonStarts[row]);
+            for (int polygonRow = polygonStarts[row]; polygonRow < polygonStarts[row + 1]; polygonRow++) {
+                polygon.add(new Coordinates(polygonLatitudes[polygonRow], polygonLongitudes[polygonRow]));
+            }
+        }
+        GeometryType type = types[row] == NO_TYPE ? null : TYPES[types[row]];
+        return new Geometry(ids[row], timestamps[row], type, coordinates, polygon);
+    }
+
+    private class GeometryView extends AbstractList<Geometry> implements RandomAccess {
+        private final int start;
+        private final int end;
+
+        private GeometryView(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Geometry get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            }
+            return getGeometry(start + index);
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
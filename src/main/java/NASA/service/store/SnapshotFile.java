@@ -0,0 +1,248 @@
+package NASA.service.store;
+
+import NASA.model.Category;
+import NASA.model.Event;
+import NASA.model.Source;
+import NASA.service.EventSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static NASA.service.store.EventCodec.NULL;
+import static NASA.service.store.EventCodec.readCategory;
+import static NASA.service.store.EventCodec.readGeometries;
+import static NASA.service.store.EventCodec.readSource;
+import static NASA.service.store.EventCodec.readString;
+import static NASA.service.store.EventCodec.writeCategory;
+import static NASA.service.store.EventCodec.writeGeometries;
+import static NASA.service.store.EventCodec.writeSource;
+import static NASA.service.store.EventCodec.writeString;
+
+/***
+ * Binary file holding an {@link EventSnapshot}. The header holds a magic number, the format version, the version
+ * and creation time of the snapshot, and the length and CRC32 of the payload. The payload holds every distinct
+ * category, source, category list and source list once, then the open and the closed events referring to them by
+ * position, with their geometries written as primitives by the {@link EventCodec}. A file is written next to its
+ * target and moved over it, so a reader never sees a partial file; it is read through a memory mapping and checked
+ * against its checksum before any event is decoded.
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x454F4E53;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8;
+
+    private SnapshotFile() {
+    }
+
+    /***
+     *
+     * @return the size of the written file in bytes
+     */
+    public static long write(EventSnapshot snapshot, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                CRC32 checksum = new CRC32();
+                channel.position(HEADER_SIZE);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16));
+                writePayload(snapshot, out);
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(snapshot.getVersion())
+                        .putLong(snapshot.getCreatedAt())
+                        .putLong(channel.position() - HEADER_SIZE)
+                        .putLong(checksum.getValue());
+                header.flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return Files.size(file);
+    }
+
+    /***
+     *
+     * @param columnar whether the events are compacted into a {@link GeometryColumns}, as by the columnar store
+     * @return the snapshot of the file
+     * @throws IOException if the file cannot be read, was written in another format or does not match its checksum
+     */
+    public static EventSnapshot read(Path file, boolean columnar) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a snapshot file of format " + FORMAT_VERSION);
+            }
+            long version = buffer.getLong();
+            long createdAt = buffer.getLong();
+            long length = buffer.getLong();
+            long expectedChecksum = buffer.getLong();
+            if (length != buffer.remaining()) {
+                throw new IOException("Truncated snapshot file, " + buffer.remaining() + " of " + length + " bytes");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Snapshot file checksum mismatch");
+            }
+            return readPayload(buffer, version, createdAt, columnar);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Malformed snapshot file", e);
+        }
+    }
+
+    private static void writePayload(EventSnapshot snapshot, DataOutputStream out) throws IOException {
+        List<Event> events = new ArrayList<>(snapshot.getOpenEvents());
+        events.addAll(snapshot.getClosedEvents());
+
+        Map<Category, Integer> categories = new HashMap<>();
+        Map<Source, Integer> sources = new HashMap<>();
+        Map<List<Category>, Integer> categoryLists = new HashMap<>();
+        Map<List<Source>, Integer> sourceLists = new HashMap<>();
+        List<Category> categoryTable = new ArrayList<>();
+        List<Source> sourceTable = new ArrayList<>();
+        List<List<Category>> categoryListTable = new ArrayList<>();
+        List<List<Source>> sourceListTable = new ArrayList<>();
+        for (Category category : snapshot.getCategories()) {
+            index(category, categories, categoryTable);
+        }
+        for (Event event : events) {
+            if (event.getCategories() != null) {
+                event.getCategories().forEach(category -> index(category, categories, categoryTable));
+                index(event.getCategories(), categoryLists, categoryListTable);
+            }
+            if (event.getSources() != null) {
+                event.getSources().forEach(source -> index(source, sources, sourceTable));
+                index(event.getSources(), sourceLists, sourceListTable);
+            }
+        }
+
+        out.writeInt(categoryTable.size());
+        for (Category category : categoryTable) {
+            writeCategory(category, out);
+        }
+        out.writeInt(sourceTable.size());
+        for (Source source : sourceTable) {
+            writeSource(source, out);
+        }
+        writeIndexLists(categoryListTable, categories, out);
+        writeIndexLists(sourceListTable, sources, out);
+        writeIndexList(snapshot.getCategories(), categories, out);
+
+        out.writeInt(snapshot.getOpenEvents().size());
+        out.writeInt(snapshot.getClosedEvents().size());
+        for (Event event : events) {
+            writeString(event.getId(), out);
+            writeString(event.getTitle(), out);
+            writeString(event.getDescription(), out);
+            writeString(event.getLink(), out);
+            out.writeInt(event.getCategories() == null ? NULL : categoryLists.get(event.getCategories()));
+            out.writeInt(event.getSources() == null ? NULL : sourceLists.get(event.getSources()));
+            out.writeLong(event.getClosed() == null ? Long.MIN_VALUE : event.getClosed().getTime());
+            writeGeometries(event.getGeometries(), out);
+        }
+    }
+
+    private static <T> void index(T value, Map<T, Integer> indexes, List<T> table) {
+        if (!indexes.containsKey(value)) {
+            indexes.put(value, table.size());
+            table.add(value);
+        }
+    }
+
+    private static <T> void writeIndexLists(List<List<T>> lists, Map<T, Integer> indexes, DataOutputStream out) throws IOException {
+        out.writeInt(lists.size());
+        for (List<T> list : lists) {
+            writeIndexList(list, indexes, out);
+        }
+    }
+
+    private static <T> void writeIndexList(List<T> list, Map<T, Integer> indexes, DataOutputStream out) throws IOException {
+        out.writeInt(list.size());
+        for (T value : list) {
+            out.writeInt(indexes.get(value));
+        }
+    }
+
+    private static EventSnapshot readPayload(ByteBuffer in, long version, long createdAt, boolean columnar) {
+        Category[] categories = new Category[in.getInt()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = readCategory(in);
+        }
+        Source[] sources = new Source[in.getInt()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = readSource(in);
+        }
+        List<List<Category>> categoryLists = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            categoryLists.add(readIndexList(in, categories));
+        }
+        List<List<Source>> sourceLists = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            sourceLists.add(readIndexList(in, sources));
+        }
+        List<Category> catalogue = readIndexList(in, categories);
+
+        int openCount = in.getInt();
+        int closedCount = in.getInt();
+        List<Event> events = new ArrayList<>(openCount + closedCount);
+        for (int i = 0; i < openCount + closedCount; i++) {
+            Event event = new Event();
+            event.setId(readString(in));
+            event.setTitle(readString(in));
+            event.setDescription(readString(in));
+            event.setLink(readString(in));
+            int categoryList = in.getInt();
+            event.setCategories(categoryList == NULL ? null : categoryLists.get(categoryList));
+            int sourceList = in.getInt();
+            event.setSources(sourceList == NULL ? null : sourceLists.get(sourceList));
+            long closed = in.getLong();
+            event.setClosed(closed == Long.MIN_VALUE ? null : new Date(closed));
+            event.setGeometries(readGeometries(in));
+            events.add(event);
+        }
+        if (columnar) {
+            events = CompactEvent.compact(events);
+        }
+        return new EventSnapshot(version, createdAt, events.subList(0, openCount),
+                events.subList(openCount, events.size()), catalogue);
+    }
+
+    private static <T> List<T> readIndexList(ByteBuffer in, T[] table) {
+        int size = in.getInt();
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(table[in.getInt()]);
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
@@ -0,0 +1,272 @@
+package NASA.utils;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.Source;
+import NASA.model.enums.GeometryType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/***
+ * Token based alternative to {@link JsonParser}: reads the EONET events response straight from the stream and
+ * hands every event to the consumer as soon as it is complete, without building the response as a String or a tree.
+ */
+public class EventStreamParser {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final ModelInterner interner;
+
+    public EventStreamParser() {
+        this(new ModelInterner());
+    }
+
+    /***
+     *
+     * @param interner shares the categories and sources of the parsed events
+     */
+    public EventStreamParser(ModelInterner interner) {
+        this.interner = interner;
+    }
+
+    public List<Event> getEventsFrom(InputStream inputStream) throws IOException {
+        List<Event> events = new ArrayList<>();
+        parseEvents(inputStream, events::add);
+        return events;
+    }
+
+    public void parseEvents(InputStream inputStream, Consumer<Event> consumer) throws IOException {
+        try (com.fasterxml.jackson.core.JsonParser parser = FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected the EONET response to be an object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if ("events".equals(fieldName) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(readEvent(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private Event readEvent(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        Event event = new Event();
+        event.setCategories(new ArrayList<>());
+        event.setSources(new ArrayList<>());
+        event.setGeometries(new ArrayList<>());
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    event.setId(parser.getText());
+                    break;
+                case "title":
+                    event.setTitle(parser.getText());
+                    break;
+                case "description":
+                    event.setDescription(parser.getText());
+                    break;
+                case "link":
+                    event.setLink(parser.getText());
+                    break;
+                case "closed":
+                    if (token != JsonToken.VALUE_NULL) {
+                        event.setClosed(new Date(readTimestamp(parser)));
+                    }
+                    break;
+                case "categories":
+                    readArray(parser, () -> event.getCategories().add(readCategory(parser)));
+                    break;
+                case "sources":
+                    readArray(parser, () -> event.getSources().add(readSource(parser)));
+                    break;
+                case "geometries":
+                    readArray(parser, () -> event.getGeometries().add(readGeometry(parser)));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        event.setCategories(interner.internCategories(event.getCategories()));
+        event.setSources(interner.internSources(event.getSources()));
+        return event;
+    }
+
+    private Category readCategory(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        Category category = new Category();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    category.setId(parser.getValueAsInt());
+                    break;
+                case "title":
+                    category.setTitle(parser.getText());
+                    break;
+                case "description":
+                    category.setDescription(parser.getText());
+                    break;
+                case "link":
+                    category.setLink(parser.getText());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return category;
+    }
+
+    private Source readSource(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        Source source = new Source();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    source.setId(parser.getValueAsString());
+                    break;
+                case "title":
+                    source.setTitle(parser.getValueAsString());
+                    break;
+                case "url":
+                    source.setUrl(parser.getValueAsString());
+                    break;
+                case "link":
+                    source.setLink(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return source;
+    }
+
+    private Geometry readGeometry(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        Geometry geometry = new Geometry();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id":
+                    geometry.setId(parser.getValueAsInt());
+                    break;
+                case "date":
+                    geometry.setTimestamp(readTimestamp(parser));
+                    break;
+                case "type":
+                    geometry.setType(GeometryType.valueOf(parser.getText()));
+                    break;
+                case "coordinates":
+                    readCoordinates(parser, geometry);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (!GeometryType.Point.equals(geometry.getType())) {
+            geometry.setCoordinates(null);
+        }
+        if (!GeometryType.Polygon.equals(geometry.getType())) {
+            geometry.setPolygon(null);
+        }
+        return geometry;
+    }
+
+    /***
+     * Reads the coordinates of a point, or the outer ring of a polygon. The type of the geometry may come
+     * after its coordinates, so both shapes are read here and the one not matching the type is dropped later.
+     */
+    private void readCoordinates(com.fasterxml.jackson.core.JsonParser parser, Geometry geometry) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            geometry.setCoordinates(readPosition(parser));
+            return;
+        }
+
+        List<Coordinates> polygon = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            Coordinates position = readPosition(parser);
+            if (position != null) {
+                polygon.add(position);
+            }
+        }
+        geometry.setPolygon(polygon);
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+    }
+
+    /***
+     * Reads the numbers of a position, starting from its first element up to the end of its array.
+     *
+     * @return the position, or null if it does not hold two numbers
+     */
+    private Coordinates readPosition(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        double[] position = new double[2];
+        int size = 0;
+        for (JsonToken token = parser.currentToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token.isNumeric() && size < position.length) {
+                position[size++] = parser.getValueAsDouble();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return size == position.length ? new Coordinates(position[0], position[1]) : null;
+    }
+
+    private long readTimestamp(com.fasterxml.jackson.core.JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected a date string");
+        }
+        try {
+            return IsoDateDecoder.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } catch (ParseException e) {
+            throw new JsonParseException(parser, e.getMessage(), e);
+        }
+    }
+
+    private void readArray(com.fasterxml.jackson.core.JsonParser parser, ElementReader elementReader) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            elementReader.read();
+        }
+    }
+
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+}
@@ -0,0 +1,125 @@
+package NASA.utils;
+
+import java.text.ParseException;
+
+/***
+ * Decoder for the fixed format timestamps used by EONET, yyyy-MM-dd'T'HH:mm:ss'Z'.
+ * Unlike SimpleDateFormat it is thread safe, allocates nothing and always reads the timestamp as UTC.
+ */
+public final class IsoDateDecoder {
+    private static final String PATTERN = "####-##-##T##:##:##Z";
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private IsoDateDecoder() {
+    }
+
+    /***
+     *
+     * @param text a timestamp like 2020-05-01T12:34:56Z
+     * @return the number of milliseconds since the epoch
+     * @throws ParseException if the text is not a valid timestamp in the EONET format
+     */
+    public static long parse(CharSequence text) throws ParseException {
+        if (text == null || text.length() != PATTERN.length()) {
+            throw new ParseException("Unparseable date: \"" + text + "\"", 0);
+        }
+        for (int i = 0; i < PATTERN.length(); i++) {
+            if (!matches(text.charAt(i), i)) {
+                throw new ParseException("Unparseable date: \"" + text + "\"", i);
+            }
+        }
+
+        long epochMillis = toEpochMillis(number(text, 0, 4), number(text, 5, 2), number(text, 8, 2),
+                number(text, 11, 2), number(text, 14, 2), number(text, 17, 2));
+        if (epochMillis == Long.MIN_VALUE) {
+            throw new ParseException("Unparseable date: \"" + text + "\"", 0);
+        }
+        return epochMillis;
+    }
+
+    /***
+     * Same as {@link #parse(CharSequence)} for a range of a character buffer, such as the text buffer of a
+     * Jackson parser, so that no String has to be created for the timestamp.
+     */
+    public static long parse(char[] chars, int offset, int length) throws ParseException {
+        if (length != PATTERN.length()) {
+            throw new ParseException("Unparseable date: \"" + new String(chars, offset, length) + "\"", 0);
+        }
+        for (int i = 0; i < PATTERN.length(); i++) {
+            if (!matches(chars[offset + i], i)) {
+                throw new ParseException("Unparseable date: \"" + new String(chars, offset, length) + "\"", i);
+            }
+        }
+
+        long epochMillis = toEpochMillis(number(chars, offset, 4), number(chars, offset + 5, 2),
+                number(chars, offset + 8, 2), number(chars, offset + 11, 2), number(chars, offset + 14, 2),
+                number(chars, offset + 17, 2));
+        if (epochMillis == Long.MIN_VALUE) {
+            throw new ParseException("Unparseable date: \"" + new String(chars, offset, length) + "\"", 0);
+        }
+        return epochMillis;
+    }
+
+    private static boolean matches(char c, int index) {
+        char expected = PATTERN.charAt(index);
+        return expected == '#' ? c >= '0' && c <= '9' : c == expected;
+    }
+
+    private static int number(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static int number(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value * 10 + chars[i] - '0';
+        }
+        return value;
+    }
+
+    /***
+     *
+     * @return the number of milliseconds since the epoch, or Long.MIN_VALUE if a field is out of range
+     */
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second) {
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+
+        long seconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        return seconds * MILLIS_PER_SECOND;
+    }
+
+    /***
+     * Number of days between 1970-01-01 and the given date of the proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
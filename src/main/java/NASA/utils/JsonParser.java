@@ -2,6 +2,7 @@ package NASA.utils;
 
 import NASA.model.Category;
 import NASA.model.Coordinates;
+import NASA.model.Event;
 import NASA.model.Geometry;
 import NASA.model.Source;
 import NASA.model.enums.GeometryType;
@@ -10,7 +11,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
@@ -19,6 +19,58 @@ import java.util.List;
 public class JsonParser {
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    private final ModelInterner interner;
+
+    public JsonParser() {
+        this(new ModelInterner());
+    }
+
+    /***
+     *
+     * @param interner shares the categories and sources of the parsed events
+     */
+    public JsonParser(ModelInterner interner) {
+        this.interner = interner;
+    }
+
+    public List<Event> getEventsFromJsonNode(JsonNode jsonNode) throws JsonProcessingException, ParseException {
+        List<Event> events = new ArrayList<>();
+        for (Iterator<JsonNode> eventsIterator = jsonNode.elements(); eventsIterator.hasNext(); ) {
+            JsonNode eventNode = eventsIterator.next();
+            String eventId = eventNode.get("id").asText();
+            String eventTitle = eventNode.get("title").asText();
+            String eventDescription = eventNode.get("description").asText();
+            String eventLink = eventNode.get("link").asText();
+
+            JsonNode categoriesNode = eventNode.get("categories");
+            List<Category> categories = interner.internCategories(getCategoriesFromJsonNode(categoriesNode));
+
+            JsonNode sourcesNode = eventNode.get("sources");
+            List<Source> sources = interner.internSources(getSourcesFromJsonNode(sourcesNode));
+
+            JsonNode geometriesNode = eventNode.get("geometries");
+            List<Geometry> geometries = getGeometriesFromJsonNode(geometriesNode);
+
+            Date closedDate = null;
+            if (eventNode.has("closed")) {
+                closedDate = new Date(IsoDateDecoder.parse(eventNode.get("closed").asText()));
+            }
+
+            Event event = new Event();
+            event.setId(eventId);
+            event.setTitle(eventTitle);
+            event.setDescription(eventDescription);
+            event.setLink(eventLink);
+            event.setCategories(categories);
+            event.setSources(sources);
+            event.setGeometries(geometries);
+            event.setClosed(closedDate);
+            events.add(event);
+        }
+
+        return events;
+    }
+
     public List<Category> getCategoriesFromJsonNode(JsonNode jsonNode) {
         List<Category> categories = new ArrayList<>();
         for (Iterator<JsonNode> categoriesIterator = jsonNode.elements(); categoriesIterator.hasNext(); ) {
@@ -68,8 +120,8 @@ public class JsonParser {
                 geometry.setId(geometryId);
             }
 
-            Date date = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'").parse(geometryNode.get("date").asText());
-            geometry.setDate(date);
+            long timestamp = IsoDateDecoder.parse(geometryNode.get("date").asText());
+            geometry.setTimestamp(timestamp);
 
             GeometryType geometryType = GeometryType.valueOf(geometryNode.get("type").asText());
             geometry.setType(geometryType);
@@ -80,6 +132,13 @@ public class JsonParser {
                 double longitude = coordinatesNode.get(1).asDouble();
                 Coordinates coordinates = new Coordinates(latitude, longitude);
                 geometry.setCoordinates(coordinates);
+            } else if (geometryType.equals(GeometryType.Polygon)) {
+                List<Coordinates> polygon = new ArrayList<>();
+                for (Iterator<JsonNode> positionsIterator = coordinatesNode.get(0).elements(); positionsIterator.hasNext(); ) {
+                    JsonNode positionNode = positionsIterator.next();
+                    polygon.add(new Coordinates(positionNode.get(0).asDouble(), positionNode.get(1).asDouble()));
+                }
+                geometry.setPolygon(polygon);
             }
 
             geometries.add(geometry);
@@ -0,0 +1,80 @@
+package NASA.utils;
+
+import NASA.model.Category;
+import NASA.model.Source;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Canonical instances of the categories and sources embedded in events. EONET repeats the same dozen categories
+ * and few dozen sources in every event, so each parsed value is replaced by the first equal instance seen, and so
+ * is each category or source list: the events of every response and every refresh share them, and the duplicates
+ * parsed are garbage as soon as their event is complete. A source usually links to the page of its event, so
+ * sources also share the strings of their id and title with the other sources. The shared instances must not be
+ * modified.
+ */
+public class ModelInterner {
+    /***
+     * Bound on the instances kept of each kind; a pool reaching it is emptied, so values EONET stops sending
+     * cannot pile up.
+     */
+    private static final int MAX_INSTANCES = 65536;
+
+    private final Map<Category, Category> categories = new ConcurrentHashMap<>();
+    private final Map<Source, Source> sources = new ConcurrentHashMap<>();
+    private final Map<String, String> sourceStrings = new ConcurrentHashMap<>();
+    private final Map<List<Category>, List<Category>> categoryLists = new ConcurrentHashMap<>();
+    private final Map<List<Source>, List<Source>> sourceLists = new ConcurrentHashMap<>();
+
+    /***
+     *
+     * @return the canonical, unmodifiable list equal to the given categories, or null if there are none
+     */
+    public List<Category> internCategories(List<Category> eventCategories) {
+        if (eventCategories == null) {
+            return null;
+        }
+        List<Category> canonicalCategories = new ArrayList<>(eventCategories.size());
+        for (Category category : eventCategories) {
+            canonicalCategories.add(intern(categories, category));
+        }
+        return intern(categoryLists, Collections.unmodifiableList(canonicalCategories));
+    }
+
+    /***
+     *
+     * @return the canonical, unmodifiable list equal to the given sources, or null if there are none
+     */
+    public List<Source> internSources(List<Source> eventSources) {
+        if (eventSources == null) {
+            return null;
+        }
+        List<Source> canonicalSources = new ArrayList<>(eventSources.size());
+        for (Source source : eventSources) {
+            Source canonicalSource = sources.get(source);
+            if (canonicalSource == null) {
+                source.setId(source.getId() == null ? null : intern(sourceStrings, source.getId()));
+                source.setTitle(source.getTitle() == null ? null : intern(sourceStrings, source.getTitle()));
+                canonicalSource = intern(sources, source);
+            }
+            canonicalSources.add(canonicalSource);
+        }
+        return intern(sourceLists, Collections.unmodifiableList(canonicalSources));
+    }
+
+    private static <T> T intern(Map<T, T> pool, T value) {
+        T canonicalValue = pool.get(value);
+        if (canonicalValue != null) {
+            return canonicalValue;
+        }
+        if (pool.size() >= MAX_INSTANCES) {
+            pool.clear();
+        }
+        canonicalValue = pool.putIfAbsent(value, value);
+        return canonicalValue == null ? value : canonicalValue;
+    }
+}
@@ -0,0 +1,80 @@
+package NASA.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Coalesces concurrent calls for the same key: the first caller runs the loader, the callers arriving while it
+ * runs wait for it and receive the same result, or the same exception. Nothing is cached once the call completes.
+ *
+ * @param <K> the type of the key identifying identical calls
+ * @param <V> the type of the shared result
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executedCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> runningCall = inFlight.putIfAbsent(key, call);
+        if (runningCall != null) {
+            coalescedCalls.incrementAndGet();
+            return await(runningCall);
+        }
+
+        executedCalls.incrementAndGet();
+        try {
+            V value = loader.call();
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /***
+     *
+     * @return the number of calls that ran their loader
+     */
+    public long getExecutedCalls() {
+        return executedCalls.get();
+    }
+
+    /***
+     *
+     * @return the number of calls that were served by a call already in flight
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    public int getInFlightCalls() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> call) throws Exception {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package NASA.service;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.GeometryType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/***
+ * Publishes snapshots adding, updating, closing and removing events, and checks after each one that the counts the
+ * {@link EventStatistics} and the {@link HeatmapTiles} updated with the changed events only equal the counts of
+ * the same snapshot counted from scratch.
+ */
+public class SnapshotAggregatesTest {
+    private static final int MAX_ZOOM = 3;
+    private static final int RESOLUTION = 4;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final Category WILDFIRES = new Category(8, "Wildfires", null, null, null);
+    private static final Category SEVERE_STORMS = new Category(10, "Severe Storms", null, null, null);
+    private static final Category VOLCANOES = new Category(12, "Volcanoes", null, null, null);
+    private static final Category SEA_ICE = new Category(15, "Sea and Lake Ice", null, null, null);
+    private static final List<Category> CATALOGUE = Arrays.asList(WILDFIRES, SEVERE_STORMS, VOLCANOES);
+    private static final List<Integer> CATEGORY_IDS = Arrays.asList(null, 8, 10, 12, 15);
+
+    private EventSnapshotStore snapshotStore;
+    private EventStatistics statistics;
+    private HeatmapTiles tiles;
+
+    @Before
+    public void setUp() {
+        snapshotStore = new EventSnapshotStore();
+        statistics = new EventStatistics(snapshotStore);
+        tiles = createTiles(snapshotStore);
+    }
+
+    @Test
+    public void updatesTheCountsLikeARecount() {
+        Event fire = createEvent("EONET_1", null, Collections.singletonList(WILDFIRES), point(0, 10, 20), point(1, 11, 21));
+        Event volcano = createEvent("EONET_2", null, Collections.singletonList(VOLCANOES),
+                polygon(2, new Coordinates(-60, -10), new Coordinates(-58, -10), new Coordinates(-59, -8)));
+        Event storm = createEvent("EONET_3", null, Arrays.asList(WILDFIRES, SEVERE_STORMS), point(3, 120, 15));
+        Event ice = createEvent("EONET_4", new Date(40 * DAY), Collections.singletonList(SEA_ICE), point(30, -170, 80));
+        Event bare = createEvent("EONET_5", null, null);
+        bare.setGeometries(null);
+        publishAndCompare(Arrays.asList(fire, volcano, storm, bare), Collections.singletonList(ice));
+
+        Event grownFire = createEvent("EONET_1", null, Collections.singletonList(WILDFIRES),
+                point(0, 10, 20), point(1, 11, 21), point(5, 12, 22));
+        Event sameVolcano = createEvent("EONET_2", null, Collections.singletonList(VOLCANOES),
+                polygon(2, new Coordinates(-60, -10), new Coordinates(-58, -10), new Coordinates(-59, -8)));
+        Event movedStorm = createEvent("EONET_3", null, Arrays.asList(WILDFIRES, SEVERE_STORMS), point(4, 125, 18));
+        Event newFire = createEvent("EONET_6", null, Collections.singletonList(WILDFIRES), point(6, 10, 20));
+        publishAndCompare(Arrays.asList(newFire, grownFire, sameVolcano, movedStorm, bare), Collections.singletonList(ice));
+
+        Event closedFire = createEvent("EONET_1", new Date(50 * DAY), Collections.singletonList(WILDFIRES),
+                point(0, 10, 20), point(1, 11, 21), point(5, 12, 22));
+        Event recategorizedStorm = createEvent("EONET_3", null, Collections.singletonList(SEVERE_STORMS), point(4, 125, 18));
+        publishAndCompare(Arrays.asList(newFire, sameVolcano, recategorizedStorm, bare), Arrays.asList(closedFire, ice));
+
+        publishAndCompare(Arrays.asList(newFire, recategorizedStorm), Collections.singletonList(closedFire));
+
+        publishAndCompare(Collections.emptyList(), Collections.emptyList());
+    }
+
+    @Test
+    public void updatesRepeatedPointsLikeARecount() {
+        Event fire = createEvent("EONET_1", null, Collections.singletonList(WILDFIRES),
+                point(0, 10, 20), point(1, 10, 20), point(2, 10, 20), point(3, -40, -30));
+        publishAndCompare(Collections.singletonList(fire), Collections.emptyList());
+
+        Event fewerRepeats = createEvent("EONET_1", null, Collections.singletonList(WILDFIRES),
+                point(0, 10, 20), point(3, -40, -30), point(4, -40, -30));
+        publishAndCompare(Collections.singletonList(fewerRepeats), Collections.emptyList());
+
+        Event moreRepeats = createEvent("EONET_1", null, Collections.singletonList(WILDFIRES),
+                point(0, 10, 20), point(1, 10, 20), point(2, 10, 20), point(3, 10, 20));
+        publishAndCompare(Collections.singletonList(moreRepeats), Collections.emptyList());
+    }
+
+    /***
+     * Publishes the snapshot, after reading every tile so that the tiles it changes must be evicted, and compares
+     * the updated counts with a recount of the snapshot.
+     */
+    private void publishAndCompare(List<Event> openEvents, List<Event> closedEvents) {
+        readEveryTile(tiles);
+        snapshotStore.publish(openEvents, closedEvents, CATALOGUE);
+
+        EventSnapshotStore recountStore = new EventSnapshotStore();
+        recountStore.restore(snapshotStore.getSnapshot());
+        EventStatistics recountedStatistics = new EventStatistics(recountStore);
+        HeatmapTiles recountedTiles = createTiles(recountStore);
+
+        assertEquals(recountedStatistics.getSummary(), statistics.getSummary());
+        assertEquals(recountedStatistics.getCategories(), statistics.getCategories());
+        assertEquals(recountedStatistics.getDays(FIRST_DAY, FIRST_DAY.plusDays(365)),
+                statistics.getDays(FIRST_DAY, FIRST_DAY.plusDays(365)));
+        assertEquals(readEveryTile(recountedTiles), readEveryTile(tiles));
+    }
+
+    private static List<String> readEveryTile(HeatmapTiles heatmapTiles) {
+        List<String> tiles = new ArrayList<>();
+        for (Integer categoryId : CATEGORY_IDS) {
+            for (int z = 0; z <= MAX_ZOOM; z++) {
+                for (int x = 0; x < 1 << z; x++) {
+                    for (int y = 0; y < 1 << z; y++) {
+                        tiles.add(new String(heatmapTiles.getTile(z, x, y, categoryId).getBody()));
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    private static HeatmapTiles createTiles(EventSnapshotStore snapshotStore) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ResponseCache responseCache = new ResponseCache(new ObjectMapper(), meterRegistry, snapshotStore, 64, -1);
+        return new HeatmapTiles(responseCache, snapshotStore, meterRegistry, MAX_ZOOM, RESOLUTION, 4096);
+    }
+
+    private static Event createEvent(String id, Date closed, List<Category> categories, Geometry... geometries) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTitle("Event " + id);
+        event.setCategories(categories);
+        event.setClosed(closed);
+        event.setGeometries(Arrays.asList(geometries));
+        return event;
+    }
+
+    private static Geometry point(int day, double longitude, double latitude) {
+        return new Geometry(0, day * DAY, GeometryType.Point, new Coordinates(longitude, latitude), null);
+    }
+
+    private static Geometry polygon(int day, Coordinates... ring) {
+        return new Geometry(0, day * DAY, GeometryType.Polygon, null, Arrays.asList(ring));
+    }
+}
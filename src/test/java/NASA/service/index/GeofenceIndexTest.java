@@ -0,0 +1,214 @@
+package NASA.service.index;
+
+import NASA.model.Coordinates;
+import NASA.model.Geometry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceIndexTest {
+    private static final int GEOFENCES = 2000;
+    private static final int LOOKUPS = 1000;
+
+    @Test
+    public void matchesLikeEveryGeofenceChecked() {
+        assertMatchesLikeEveryGeofenceChecked(new GeofenceIndex<>(2.0, 256));
+    }
+
+    @Test
+    public void matchesLikeEveryGeofenceCheckedWhenMostGeofencesAreLarge() {
+        assertMatchesLikeEveryGeofenceChecked(new GeofenceIndex<>(2.0, 1));
+    }
+
+    @Test
+    public void matchesLikeEveryGeofenceCheckedWithCoarseCells() {
+        assertMatchesLikeEveryGeofenceChecked(new GeofenceIndex<>(45.0, 256));
+    }
+
+    @Test
+    public void matchesTheGeofencesOfTheCellsAroundAGeometry() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 256);
+        index.add(Geofence.circle(45, 10, 50), "near");
+        index.add(Geofence.circle(45, 11.9, 150), "neighbour cell");
+        index.add(Geofence.circle(-45, -100, 50), "far");
+
+        assertEquals(new HashSet<>(Arrays.asList("near", "neighbour cell")), collectOwners(index, point(10.2, 45.1)));
+        assertEquals(Collections.singleton("far"), collectOwners(index, point(-100, -45)));
+        assertEquals(Collections.emptySet(), collectOwners(index, point(60, 0)));
+    }
+
+    @Test
+    public void matchesLargeGeofencesEverywhereTheyReach() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 4);
+        index.add(Geofence.circle(0, 0, 20000), "world");
+        index.add(Geofence.parsePolygon("-170,-80,170,-80,0,80"), "triangle");
+        index.add(Geofence.circle(10, 10, 10), "small");
+
+        assertEquals(new HashSet<>(Arrays.asList("world", "triangle", "small")), collectOwners(index, point(10, 10)));
+        assertEquals(Collections.singleton("world"), collectOwners(index, point(179, 85)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void matchesCirclesAcrossTheAntimeridian() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 256);
+        index.add(Geofence.circle(0, 179.5, 200), "east");
+        index.add(Geofence.circle(-20, -179.8, 100), "west");
+
+        assertTrue(Geofence.circle(0, 179.5, 200).getEnvelope().crossesAntimeridian());
+        assertEquals(Collections.singleton("east"), collectOwners(index, point(-179.5, 0.5)));
+        assertEquals(Collections.singleton("east"), collectOwners(index, point(179, -0.5)));
+        assertEquals(Collections.singleton("west"), collectOwners(index, point(179.9, -20)));
+        assertEquals(Collections.emptySet(), collectOwners(index, point(0, 0)));
+        assertEquals(Collections.emptySet(), collectOwners(index, point(-170, 0)));
+    }
+
+    @Test
+    public void matchesAPolygonGeometryContainingTheGeofence() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 256);
+        index.add(Geofence.circle(15, 15, 10), "inside");
+        index.add(Geofence.parsePolygon("14,14,16,14,15,16"), "inside polygon");
+        index.add(Geofence.circle(30, 30, 10), "outside");
+
+        Geometry polygon = new Geometry();
+        polygon.setPolygon(Arrays.asList(point(10, 10).getCoordinates(), point(20, 10).getCoordinates(),
+                point(20, 20).getCoordinates(), point(10, 20).getCoordinates()));
+
+        assertEquals(new HashSet<>(Arrays.asList("inside", "inside polygon")), collectOwners(index, polygon));
+    }
+
+    @Test
+    public void ignoresGeometriesWithoutValidCoordinates() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 1);
+        index.add(Geofence.circle(0, 0, 20000), "world");
+
+        assertEquals(Collections.emptySet(), collectOwners(index, new Geometry()));
+        assertEquals(Collections.emptySet(), collectOwners(index, point(190, 0)));
+        assertEquals(Collections.emptySet(), collectOwners(index, point(0, Double.NaN)));
+    }
+
+    @Test
+    public void forgetsRemovedGeofences() {
+        GeofenceIndex<String> index = new GeofenceIndex<>(2.0, 4);
+        GeofenceIndex.Entry<String> small = index.add(Geofence.circle(10, 10, 50), "client");
+        GeofenceIndex.Entry<String> large = index.add(Geofence.circle(10, 10, 5000), "client");
+        GeofenceIndex.Entry<String> other = index.add(Geofence.circle(10, 10, 50), "other");
+
+        index.remove(small);
+        assertEquals(new HashSet<>(Arrays.asList("client", "other")), collectOwners(index, point(10, 10)));
+
+        index.remove(large);
+        assertEquals(Collections.singleton("other"), collectOwners(index, point(10, 10)));
+
+        index.remove(other);
+        assertEquals(Collections.emptySet(), collectOwners(index, point(10, 10)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void matchesLikeTheRemainingGeofencesCheckedAfterRemovals() {
+        Random random = new Random(7);
+        GeofenceIndex<Integer> index = new GeofenceIndex<>(2.0, 256);
+        List<Geofence> geofences = createGeofences(random);
+        List<GeofenceIndex.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < geofences.size(); i++) {
+            entries.add(index.add(geofences.get(i), i));
+        }
+
+        for (int i = 0; i < geofences.size(); i += 2) {
+            index.remove(entries.get(i));
+            geofences.set(i, null);
+        }
+
+        assertEquals(GEOFENCES / 2, index.size());
+        assertMatches(index, geofences, random);
+    }
+
+    private static void assertMatchesLikeEveryGeofenceChecked(GeofenceIndex<Integer> index) {
+        Random random = new Random(1);
+        List<Geofence> geofences = createGeofences(random);
+        for (int i = 0; i < geofences.size(); i++) {
+            index.add(geofences.get(i), i);
+        }
+
+        assertEquals(GEOFENCES, index.size());
+        assertMatches(index, geofences, random);
+    }
+
+    /***
+     * Looks up random points and small polygons, and compares the owners found with the geofences matching them
+     * when each is checked.
+     */
+    private static void assertMatches(GeofenceIndex<Integer> index, List<Geofence> geofences, Random random) {
+        int matched = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            double longitude = random.nextDouble() * 360 - 180;
+            double latitude = random.nextDouble() * 180 - 90;
+            Geometry geometry = i % 4 == 0 ? square(longitude, latitude, random.nextDouble() * 20) : point(longitude, latitude);
+
+            Set<Integer> expected = new HashSet<>();
+            for (int j = 0; j < geofences.size(); j++) {
+                if (geofences.get(j) != null && geofences.get(j).matches(geometry)) {
+                    expected.add(j);
+                }
+            }
+            Set<Integer> owners = collectOwners(index, geometry);
+
+            assertEquals("Owners of " + longitude + "," + latitude, expected, owners);
+            matched += owners.size();
+        }
+        assertTrue(matched > 0);
+    }
+
+    /***
+     *
+     * @return circles of up to 500 km with a few much larger ones, some crossing the antimeridian, and small
+     * triangles
+     */
+    private static List<Geofence> createGeofences(Random random) {
+        List<Geofence> geofences = new ArrayList<>();
+        for (int i = 0; i < GEOFENCES; i++) {
+            if (i % 2 == 0) {
+                double radiusKm = i % 100 == 0 ? 3000 + random.nextDouble() * 20000 : random.nextDouble() * 500;
+                double longitude = i % 10 == 0 ? (random.nextBoolean() ? 178 : -178) + random.nextDouble() : random.nextDouble() * 360 - 180;
+                geofences.add(Geofence.circle(random.nextDouble() * 170 - 85, longitude, radiusKm));
+            } else {
+                double longitude = random.nextDouble() * 350 - 175;
+                double latitude = random.nextDouble() * 170 - 85;
+                geofences.add(Geofence.parsePolygon(longitude + "," + latitude + "," + (longitude + 3) + "," + latitude
+                        + "," + (longitude + 1) + "," + (latitude + 4)));
+            }
+        }
+        return geofences;
+    }
+
+    private static <T> Set<T> collectOwners(GeofenceIndex<T> index, Geometry geometry) {
+        Set<T> owners = new HashSet<>();
+        index.collectOwners(geometry, owners);
+        return owners;
+    }
+
+    private static Geometry point(double longitude, double latitude) {
+        Geometry geometry = new Geometry();
+        geometry.setCoordinates(new Coordinates(longitude, latitude));
+        return geometry;
+    }
+
+    private static Geometry square(double longitude, double latitude, double size) {
+        double maxLongitude = Math.min(180, longitude + size);
+        double maxLatitude = Math.min(90, latitude + size);
+        Geometry geometry = new Geometry();
+        geometry.setPolygon(Arrays.asList(new Coordinates(longitude, latitude), new Coordinates(maxLongitude, latitude),
+                new Coordinates(maxLongitude, maxLatitude), new Coordinates(longitude, maxLatitude)));
+        return geometry;
+    }
+}
@@ -0,0 +1,235 @@
+package NASA.service.store;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.enums.GeometryType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveSegmentTest {
+    private static final String NAME = "closed-2020-04";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path eventsFile;
+    private Path summaryFile;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+        eventsFile = directory.resolve(NAME + ArchiveSegment.EVENTS_SUFFIX);
+        summaryFile = directory.resolve(NAME + ".summary");
+    }
+
+    @Test
+    public void reopensTheAppendedEvents() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Arrays.asList(createEvent("EONET_1", 8, 1000), createEvent("EONET_2", 12, 2000)));
+        segment.append(Collections.singletonList(createEvent("EONET_3", 8, 3000)));
+
+        ArchiveSegment reopened = ArchiveSegment.open(directory, NAME);
+
+        assertEquals(Arrays.asList("EONET_1", "EONET_2", "EONET_3"), reopened.getEventIds());
+        assertEquals(Arrays.asList("EONET_1", "EONET_2", "EONET_3"), readIds(reopened));
+    }
+
+    @Test
+    public void cutsOffATornLastRecord() throws IOException {
+        long validLength = appendTwoEventsThenAThird();
+
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+
+        assertRecovered(segment, validLength);
+    }
+
+    @Test
+    public void cutsOffALastRecordWithOnlyPartOfItsHeader() throws IOException {
+        long validLength = appendTwoEventsThenAThird();
+
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validLength + 5);
+        }
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+
+        assertRecovered(segment, validLength);
+    }
+
+    @Test
+    public void cutsOffACorruptLastRecord() throws IOException {
+        long validLength = appendTwoEventsThenAThird();
+
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() - 2;
+            ByteBuffer recordByte = ByteBuffer.allocate(1);
+            channel.read(recordByte, position);
+            recordByte.put(0, (byte) ~recordByte.get(0));
+            recordByte.rewind();
+            channel.write(recordByte, position);
+        }
+        Files.delete(summaryFile);
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+
+        assertRecovered(segment, validLength);
+    }
+
+    @Test
+    public void cutsOffALastRecordWithAnImpossibleLength() throws IOException {
+        long validLength = appendTwoEventsThenAThird();
+
+        ByteBuffer length = ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE);
+        length.flip();
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.WRITE)) {
+            channel.write(length, validLength);
+        }
+        Files.delete(summaryFile);
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+
+        assertRecovered(segment, validLength);
+    }
+
+    @Test
+    public void appendsAfterTheRecoveredRecords() throws IOException {
+        long validLength = appendTwoEventsThenAThird();
+        try (FileChannel channel = FileChannel.open(eventsFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Collections.singletonList(createEvent("EONET_4", 10, 4000)));
+        ArchiveSegment reopened = ArchiveSegment.open(directory, NAME);
+
+        assertTrue(Files.size(eventsFile) > validLength);
+        assertEquals(Arrays.asList("EONET_1", "EONET_2", "EONET_4"), reopened.getEventIds());
+        assertEquals(Arrays.asList("EONET_1", "EONET_2", "EONET_4"), readIds(reopened));
+    }
+
+    @Test
+    public void rebuildsASummaryOfAnotherLength() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Collections.singletonList(createEvent("EONET_1", 8, 1000)));
+        Path staleSummary = directory.resolve("stale.summary");
+        Files.copy(summaryFile, staleSummary);
+        segment.append(Collections.singletonList(createEvent("EONET_2", 12, 2000)));
+
+        Files.move(staleSummary, summaryFile, StandardCopyOption.REPLACE_EXISTING);
+        ArchiveSegment reopened = ArchiveSegment.open(directory, NAME);
+
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), reopened.getEventIds());
+        assertTrue(reopened.mayContain(2000, 2000, 12));
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), readIds(reopened));
+    }
+
+    @Test
+    public void rebuildsACorruptSummary() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Arrays.asList(createEvent("EONET_1", 8, 1000), createEvent("EONET_2", 12, 2000)));
+
+        byte[] summary = Files.readAllBytes(summaryFile);
+        summary[summary.length - 12] ^= 1;
+        Files.write(summaryFile, summary);
+        ArchiveSegment reopened = ArchiveSegment.open(directory, NAME);
+
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), reopened.getEventIds());
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), readIds(reopened));
+    }
+
+    @Test
+    public void listsAReappendedEventOnceAndIteratesBothCopies() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Arrays.asList(createEvent("EONET_1", 8, 1000), createEvent("EONET_2", 12, 2000)));
+        Event changed = createEvent("EONET_1", 15, 5000);
+        changed.setTitle("Changed");
+        segment.append(Collections.singletonList(changed));
+
+        for (ArchiveSegment opened : Arrays.asList(segment, ArchiveSegment.open(directory, NAME))) {
+            assertEquals(Arrays.asList("EONET_1", "EONET_2"), opened.getEventIds());
+            assertEquals(2, opened.getEventCount());
+            assertEquals(Arrays.asList("EONET_1", "EONET_2", "EONET_1"), readIds(opened));
+            assertTrue(opened.mayContain(5000, 6000, 15));
+        }
+        Files.delete(summaryFile);
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), ArchiveSegment.open(directory, NAME).getEventIds());
+    }
+
+    @Test
+    public void skipsWindowsAndCategoriesOutsideTheSummary() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        assertFalse(segment.mayContain(Long.MIN_VALUE, Long.MAX_VALUE, null));
+
+        segment.append(Arrays.asList(createEvent("EONET_1", 8, 1000), createEvent("EONET_2", 12, 2000)));
+
+        assertTrue(segment.mayContain(0, 1000, null));
+        assertTrue(segment.mayContain(1500, 1600, 8));
+        assertFalse(segment.mayContain(0, 999, null));
+        assertFalse(segment.mayContain(2001, 3000, null));
+        assertFalse(segment.mayContain(0, 3000, 10));
+    }
+
+    /***
+     *
+     * @return the length of the events file before the third event was appended
+     */
+    private long appendTwoEventsThenAThird() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(directory, NAME);
+        segment.append(Arrays.asList(createEvent("EONET_1", 8, 1000), createEvent("EONET_2", 12, 2000)));
+        long validLength = Files.size(eventsFile);
+        segment.append(Collections.singletonList(createEvent("EONET_3", 10, 3000)));
+        return validLength;
+    }
+
+    private void assertRecovered(ArchiveSegment segment, long validLength) throws IOException {
+        assertEquals(validLength, Files.size(eventsFile));
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), segment.getEventIds());
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), readIds(segment));
+        assertFalse(segment.mayContain(0, 5000, 10));
+        assertFalse(segment.mayContain(2500, 5000, null));
+        assertEquals(Arrays.asList("EONET_1", "EONET_2"), ArchiveSegment.open(directory, NAME).getEventIds());
+    }
+
+    private static List<String> readIds(ArchiveSegment segment) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (Iterator<Event> events = segment.iterator(); events.hasNext(); ) {
+            ids.add(events.next().getId());
+        }
+        return ids;
+    }
+
+    private static Event createEvent(String id, int categoryId, long timestamp) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTitle("Event " + id);
+        event.setCategories(Collections.singletonList(new Category(categoryId, "Category " + categoryId, null, null, null)));
+        event.setSources(Collections.emptyList());
+        event.setGeometries(Collections.singletonList(
+                new Geometry(0, timestamp, GeometryType.Point, new Coordinates(10, 20), null)));
+        event.setClosed(new Date(timestamp));
+        return event;
+    }
+}
@@ -0,0 +1,231 @@
+package NASA.service.store;
+
+import NASA.model.Category;
+import NASA.model.Coordinates;
+import NASA.model.Event;
+import NASA.model.Geometry;
+import NASA.model.Source;
+import NASA.model.enums.GeometryType;
+import NASA.service.EventSnapshot;
+import NASA.service.EventSnapshotStore;
+import NASA.service.SnapshotPersistence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotFileTest {
+    private static final int VERSION_OFFSET = 4;
+    private static final int CHECKSUM_OFFSET = 32;
+    private static final int HEADER_SIZE = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheWrittenSnapshot() throws IOException {
+        EventSnapshot snapshot = createSnapshot();
+        Path file = folder.getRoot().toPath().resolve("snapshot.bin");
+
+        SnapshotFile.write(snapshot, file);
+
+        assertSnapshotEquals(snapshot, SnapshotFile.read(file, false));
+    }
+
+    @Test
+    public void readsTheWrittenSnapshotIntoColumns() throws IOException {
+        EventSnapshot snapshot = createSnapshot();
+        Path file = folder.getRoot().toPath().resolve("snapshot.bin");
+
+        SnapshotFile.write(snapshot, file);
+        EventSnapshot read = SnapshotFile.read(file, true);
+
+        assertSnapshotEquals(snapshot, read);
+        assertTrue(read.getOpenEvents().get(0) instanceof CompactEvent);
+    }
+
+    @Test
+    public void rejectsACorruptedChecksum() throws IOException {
+        Path file = writeSnapshot();
+
+        overwriteLong(file, CHECKSUM_OFFSET, 42);
+
+        assertRejected(file, "checksum");
+    }
+
+    @Test
+    public void rejectsACorruptedPayload() throws IOException {
+        Path file = writeSnapshot();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            channel.read(payloadByte, HEADER_SIZE + 10);
+            payloadByte.put(0, (byte) ~payloadByte.get(0));
+            payloadByte.rewind();
+            channel.write(payloadByte, HEADER_SIZE + 10);
+        }
+
+        assertRejected(file, "checksum");
+    }
+
+    @Test
+    public void rejectsATruncatedFile() throws IOException {
+        Path file = writeSnapshot();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertRejected(file, "Truncated");
+    }
+
+    @Test
+    public void rejectsAWrongMagicNumber() throws IOException {
+        Path file = writeSnapshot();
+
+        overwriteInt(file, 0, 0x43414645);
+
+        assertRejected(file, "format");
+    }
+
+    @Test
+    public void rejectsAnotherFormatVersion() throws IOException {
+        Path file = writeSnapshot();
+
+        overwriteInt(file, VERSION_OFFSET, 2);
+
+        assertRejected(file, "format");
+    }
+
+    @Test
+    public void restoreIgnoresAFileOfAnotherFormat() throws IOException, InterruptedException {
+        Path file = writeSnapshot();
+        overwriteInt(file, VERSION_OFFSET, 2);
+        EventSnapshotStore snapshotStore = new EventSnapshotStore();
+        SnapshotPersistence persistence = new SnapshotPersistence(snapshotStore, new SimpleMeterRegistry(),
+                file.toString(), false);
+
+        persistence.restore();
+        persistence.shutdown();
+
+        assertFalse(snapshotStore.isLoaded());
+    }
+
+    private Path writeSnapshot() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("snapshot.bin");
+        SnapshotFile.write(createSnapshot(), file);
+        return file;
+    }
+
+    private static void overwriteInt(Path file, int offset, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(value);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, offset);
+        }
+    }
+
+    private static void overwriteLong(Path file, int offset, long value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8).putLong(value);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(buffer, offset);
+        }
+    }
+
+    private static void assertRejected(Path file, String reason) {
+        try {
+            SnapshotFile.read(file, false);
+            fail("The snapshot file was read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+
+    private static EventSnapshot createSnapshot() {
+        Category wildfires = new Category(8, "Wildfires", "Wildfires description", "https://eonet/categories/8", null);
+        Category volcanoes = new Category(12, "Volcanoes", null, "https://eonet/categories/12", null);
+        Source inciweb = new Source("InciWeb", "InciWeb", "https://inciweb.nwcg.gov/", "https://inciweb/1");
+
+        Event fire = createEvent("EONET_1", Collections.singletonList(wildfires), Collections.singletonList(inciweb), null,
+                point(1000, 38.5, -120.25), point(Geometry.NO_TIMESTAMP, 38.75, -120.5));
+        Event volcano = createEvent("EONET_2", Arrays.asList(wildfires, volcanoes), Collections.emptyList(), null,
+                polygon(2000, new Coordinates(1, 2), new Coordinates(3, 4), new Coordinates(5, 6)));
+        volcano.setDescription("Erupting");
+        Event closedFire = createEvent("EONET_3", Collections.singletonList(wildfires), Collections.singletonList(inciweb),
+                new Date(5000), point(3000, -10, 170));
+        Event bare = createEvent("EONET_4", null, null, new Date(6000));
+        bare.setTitle(null);
+        bare.setLink(null);
+        bare.setGeometries(null);
+
+        return new EventSnapshot(7, 123456789, Arrays.asList(fire, volcano), Arrays.asList(closedFire, bare),
+                Arrays.asList(wildfires, volcanoes));
+    }
+
+    private static Event createEvent(String id, List<Category> categories, List<Source> sources, Date closed,
+                                     Geometry... geometries) {
+        Event event = new Event();
+        event.setId(id);
+        event.setTitle("Event " + id);
+        event.setLink("https://eonet/events/" + id);
+        event.setCategories(categories);
+        event.setSources(sources);
+        event.setClosed(closed);
+        event.setGeometries(new ArrayList<>(Arrays.asList(geometries)));
+        return event;
+    }
+
+    private static Geometry point(long timestamp, double latitude, double longitude) {
+        return new Geometry(0, timestamp, GeometryType.Point, new Coordinates(latitude, longitude), null);
+    }
+
+    private static Geometry polygon(long timestamp, Coordinates... ring) {
+        return new Geometry(0, timestamp, GeometryType.Polygon, null, Arrays.asList(ring));
+    }
+
+    private static void assertSnapshotEquals(EventSnapshot expected, EventSnapshot actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getCategories(), actual.getCategories());
+        assertEventsEqual(expected.getOpenEvents(), actual.getOpenEvents());
+        assertEventsEqual(expected.getClosedEvents(), actual.getClosedEvents());
+    }
+
+    private static void assertEventsEqual(List<Event> expected, List<Event> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Event expectedEvent = expected.get(i);
+            Event actualEvent = actual.get(i);
+            assertEquals(expectedEvent.getId(), actualEvent.getId());
+            assertEquals(expectedEvent.getTitle(), actualEvent.getTitle());
+            assertEquals(expectedEvent.getDescription(), actualEvent.getDescription());
+            assertEquals(expectedEvent.getLink(), actualEvent.getLink());
+            assertEquals(expectedEvent.getCategories(), actualEvent.getCategories());
+            assertEquals(expectedEvent.getSources(), actualEvent.getSources());
+            assertEquals(expectedEvent.getClosed(), actualEvent.getClosed());
+            if (expectedEvent.getGeometries() == null) {
+                assertNull(actualEvent.getGeometries());
+            } else {
+                assertEquals(expectedEvent.getGeometries(), new ArrayList<>(actualEvent.getGeometries()));
+            }
+        }
+    }
+}